@@ -0,0 +1,86 @@
+package com.example.android.newsfeed;
+
+import com.example.android.newsfeed.mockserver.GuardianResponses;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.URL;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * {@link HttpTransport} standing in for the Guardian API: it answers every /search request
+ * in the app's own process, after a fixed latency, with the response
+ * {@link GuardianResponses} builds for it. The same request always gets the same response,
+ * so benchmark runs are reproducible. Unlike
+ * {@link com.example.android.newsfeed.mockserver.GuardianMockServer} it leaves the socket
+ * and the HTTP stack out of the measurements.
+ */
+
+public class FixtureTransport implements HttpTransport {
+
+    /**
+     * Time (in milliseconds) every response takes to arrive
+     */
+    private final long mLatency;
+
+    /**
+     * Number of requests answered
+     */
+    private final AtomicInteger mRequestCount = new AtomicInteger();
+
+    /**
+     * Number of requests answered for the first page of a list, i.e. without a further page
+     * the list is scrolled to
+     */
+    private final AtomicInteger mFirstPageRequestCount = new AtomicInteger();
+
+    /**
+     * Create a new {@link FixtureTransport}.
+     *
+     * @param latency time (in milliseconds) every response takes to arrive
+     */
+    public FixtureTransport(long latency) {
+        mLatency = latency;
+    }
+
+    /**
+     * Get the number of requests answered so far.
+     *
+     * @return request count.
+     */
+    public int getRequestCount() {
+        return mRequestCount.get();
+    }
+
+    /**
+     * Get the number of requests answered so far for the first page of a list.
+     *
+     * @return first page request count.
+     */
+    public int getFirstPageRequestCount() {
+        return mFirstPageRequestCount.get();
+    }
+
+    @Override
+    public HttpResponse execute(URL url, Map<String, String> requestHeaders) throws IOException {
+        try {
+            Thread.sleep(mLatency);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Cancelled while waiting for the response");
+        }
+        mRequestCount.incrementAndGet();
+
+        Map<String, String> query = GuardianResponses.parseQuery(url.getQuery());
+        String page = query.get("page");
+        if (page == null || page.equals("1")) {
+            mFirstPageRequestCount.incrementAndGet();
+        }
+        byte[] body = GuardianResponses.search(query, 0);
+        return new HttpResponse(200, Collections.singletonMap("Content-Type",
+                "application/json; charset=UTF-8"), new ByteArrayInputStream(body));
+    }
+}
@@ -0,0 +1,252 @@
+package com.example.android.newsfeed;
+
+import android.app.Instrumentation;
+import android.content.Context;
+import android.os.Bundle;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+import android.util.Log;
+
+import com.example.android.newsfeed.mockserver.GuardianMockServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Load and resilience tests of {@link QueryUtils} and {@link NewsLoader} against a
+ * {@link GuardianMockServer} on the device, through the whole networking stack: the real
+ * {@link UrlConnectionTransport}, {@link NewsHttpClient} retries and circuit breakers, and
+ * the {@link RequestScheduler}.
+ * <p>
+ * The faults are drawn from a fixed seed, so every run sees the same sequence of them. Load
+ * times are logged with the tag MockServerLoadTest and reported as instrumentation status.
+ */
+@RunWith(AndroidJUnit4.class)
+public class MockServerLoadTest {
+
+    private static final String LOG_TAG = "MockServerLoadTest";
+
+    /**
+     * Sections requested at the same time, each with its own URL so nothing is coalesced
+     */
+    private static final String[] SECTIONS = {"technology", "world", "science", "business",
+            "money", "sport", "film", "music", "books", "travel"};
+
+    /**
+     * Seed of the injected faults
+     */
+    private static final long SEED = 24;
+
+    private Instrumentation mInstrumentation;
+    private Context mContext;
+    private GuardianMockServer mServer;
+
+    @Before
+    public void setUp() throws Exception {
+        mInstrumentation = InstrumentationRegistry.getInstrumentation();
+        mContext = InstrumentationRegistry.getTargetContext();
+
+        mServer = new GuardianMockServer();
+        mServer.setSeed(SEED);
+        mServer.start();
+        FragmentUtils.setApiBaseUrl(mServer.getBaseUrl());
+        FragmentUtils.setApiKey(TestUtils.TEST_API_KEY);
+        NewsHttpClient.getInstance().resetCircuitBreakers();
+        TestUtils.clearNews(mContext);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        mServer.shutdown();
+        FragmentUtils.setApiBaseUrl(null);
+        FragmentUtils.setApiKey(null);
+        NewsHttpClient.getInstance().resetCircuitBreakers();
+        FragmentUtils.setInternetConnectedOverride(null);
+        // Don't leave mock articles behind for the app.
+        TestUtils.clearNews(mContext);
+    }
+
+    @Test
+    public void concurrentRequests_slowConnection_allComplete() throws Exception {
+        // About a 3G connection
+        mServer.setLatency(300);
+        mServer.setBandwidth(48 * 1024);
+
+        List<List<NewsObject>> results = fetchConcurrently(SECTIONS, "concurrent_slow");
+        for (List<NewsObject> newsObjects : results) {
+            assertNotNull(newsObjects);
+            assertEquals(FragmentUtils.PAGE_SIZE, newsObjects.size());
+        }
+        // Nothing failed, so nothing was retried.
+        assertEquals(SECTIONS.length, mServer.getRequestCount());
+    }
+
+    @Test
+    public void hugePage_isParsedCompletely() throws Exception {
+        mServer.setPageSize(2000);
+
+        List<NewsObject> newsObjects =
+                QueryUtils.fetchNewsObjectData(FragmentUtils.buildRequestUrl("technology"));
+        assertNotNull(newsObjects);
+        assertEquals(2000, newsObjects.size());
+    }
+
+    @Test
+    public void transientErrors_areRetried() throws Exception {
+        mServer.setErrors(503, 0.2, -1);
+
+        List<List<NewsObject>> results = fetchConcurrently(SECTIONS, "concurrent_errors");
+        int loaded = 0;
+        for (List<NewsObject> newsObjects : results) {
+            if (newsObjects != null) {
+                // Never a part of a page
+                assertEquals(FragmentUtils.PAGE_SIZE, newsObjects.size());
+                loaded++;
+            }
+        }
+        assertTrue("Errors were injected", mServer.getFaultCount() > 0);
+        // Each of them was retried, and most requests succeeded in the end.
+        assertEquals(loaded + mServer.getFaultCount(), mServer.getRequestCount());
+        assertTrue(loaded + " of " + SECTIONS.length + " loaded", loaded > SECTIONS.length / 2);
+    }
+
+    @Test
+    public void truncatedBodies_areDiscarded() throws Exception {
+        mServer.setTruncateRate(1);
+
+        assertNull(QueryUtils.fetchNewsObjectData(FragmentUtils.buildRequestUrl("technology")));
+
+        // The connection was closed, the next request opens a new one.
+        mServer.setTruncateRate(0);
+        assertNotNull(QueryUtils.fetchNewsObjectData(FragmentUtils.buildRequestUrl("world")));
+    }
+
+    @Test
+    public void longRetryAfter_opensCircuit() throws Exception {
+        mServer.setErrors(429, 1, 60);
+
+        assertNull(QueryUtils.fetchNewsObjectData(FragmentUtils.buildRequestUrl("technology")));
+        assertNull(QueryUtils.fetchNewsObjectData(FragmentUtils.buildRequestUrl("world")));
+        // Not retried, and the endpoint is not called again until the circuit closes.
+        assertEquals(1, mServer.getRequestCount());
+    }
+
+    @Test
+    public void loaders_underFaults_reportFailures() throws Exception {
+        // Loaders only request news with a connection, even though no request leaves the device.
+        FragmentUtils.setInternetConnectedOverride(true);
+        mServer.setLatency(200);
+        mServer.setBandwidth(64 * 1024);
+        mServer.setErrors(503, 0.2, -1);
+        mServer.setTruncateRate(0.1);
+
+        final List<NewsLoader> loaders = new ArrayList<>();
+        List<Callable<List<NewsObject>>> loads = new ArrayList<>();
+        for (String section : SECTIONS) {
+            final NewsLoader loader =
+                    new NewsLoader(mContext, FragmentUtils.buildRequestUrl(section));
+            loaders.add(loader);
+            loads.add(new Callable<List<NewsObject>>() {
+                @Override
+                public List<NewsObject> call() {
+                    return loader.loadInBackground();
+                }
+            });
+        }
+        List<List<NewsObject>> results = runConcurrently(loads, "loaders_faults");
+
+        for (int i = 0; i < SECTIONS.length; i++) {
+            List<NewsObject> newsObjects = results.get(i);
+            assertEquals(newsObjects == null, loaders.get(i).hasRequestFailed());
+            if (newsObjects != null) {
+                assertEquals(FragmentUtils.PAGE_SIZE, newsObjects.size());
+            }
+        }
+    }
+
+    /**
+     * Fetch the sections at the same time, each on its own thread.
+     */
+    private List<List<NewsObject>> fetchConcurrently(String[] sections, String name)
+            throws Exception {
+        List<Callable<List<NewsObject>>> fetches = new ArrayList<>();
+        for (String section : sections) {
+            final String requestUrl = FragmentUtils.buildRequestUrl(section);
+            fetches.add(new Callable<List<NewsObject>>() {
+                @Override
+                public List<NewsObject> call() {
+                    return QueryUtils.fetchNewsObjectData(requestUrl);
+                }
+            });
+        }
+        return runConcurrently(fetches, name);
+    }
+
+    /**
+     * Run the loads at the same time, each on its own thread, and report how long they took.
+     *
+     * @return the results, in the order of the loads.
+     */
+    private List<List<NewsObject>> runConcurrently(List<Callable<List<NewsObject>>> loads,
+                                                   String name) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(loads.size());
+        try {
+            final long startTime = System.nanoTime();
+            List<Future<Long>> times = new ArrayList<>();
+            final List<List<NewsObject>> results = new ArrayList<>();
+            for (final Callable<List<NewsObject>> load : loads) {
+                final int index = results.size();
+                results.add(null);
+                times.add(executor.submit(new Callable<Long>() {
+                    @Override
+                    public Long call() throws Exception {
+                        List<NewsObject> result = load.call();
+                        synchronized (results) {
+                            results.set(index, result);
+                        }
+                        return System.nanoTime() - startTime;
+                    }
+                }));
+            }
+            long[] loadTimes = new long[times.size()];
+            for (int i = 0; i < loadTimes.length; i++) {
+                loadTimes[i] = times.get(i).get();
+            }
+            report(name, loadTimes);
+            synchronized (results) {
+                return new ArrayList<>(results);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Report the load times, and the requests the server received and the faults it injected,
+     * as instrumentation status.
+     */
+    private void report(String name, long[] times) {
+        TestUtils.report(mInstrumentation, LOG_TAG, name, times);
+
+        Bundle results = new Bundle();
+        results.putInt(name + "_requests", mServer.getRequestCount());
+        results.putInt(name + "_faults", mServer.getFaultCount());
+        mInstrumentation.sendStatus(0, results);
+        Log.i(LOG_TAG, name + ": " + mServer.getRequestCount() + " requests, "
+                + mServer.getFaultCount() + " faults");
+    }
+}
@@ -0,0 +1,115 @@
+package com.example.android.newsfeed;
+
+import android.content.Context;
+import android.os.Debug;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+import android.view.ContextThemeWrapper;
+import android.widget.FrameLayout;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Instrumented test checking that rebinding a recycled list item in {@link NewsAdapter}
+ * does not allocate anything on its own.
+ * <p>
+ * TextView.setText may allocate internally (e.g. for a new text layout), so the allocations
+ * of rebinding are compared with the allocations of just setting the same texts.
+ */
+@RunWith(AndroidJUnit4.class)
+public class NewsAdapterAllocationTest {
+
+    /**
+     * Number of rebinds measured at once
+     */
+    private static final int REBINDS = 20;
+
+    /**
+     * Number of measurements, the lowest count is used to ignore one-off allocations
+     * (e.g. the labels being recomputed when a new minute starts)
+     */
+    private static final int ATTEMPTS = 3;
+
+    private NewsAdapter mAdapter;
+    private NewsAdapter.ViewHolder mViewHolder;
+    private NewsObject[] mNewsObjects;
+    private String[] mDateLabels;
+
+    @Before
+    public void setUp() throws Exception {
+        Context context = new ContextThemeWrapper(
+                InstrumentationRegistry.getTargetContext(), R.style.AppTheme);
+
+        mNewsObjects = new NewsObject[]{
+                new NewsObject("First title", "technology", "Technology",
+                        "2017-11-27T11:11:00Z", "https://www.theguardian.com/first", "John Smith"),
+                new NewsObject("Second title", "world", "World news",
+                        "2017-11-26T08:30:00Z", "https://www.theguardian.com/second", null)
+        };
+        mAdapter = new NewsAdapter(null);
+        mAdapter.submitList(Arrays.asList(mNewsObjects));
+
+        // Create the item view once and bind both items a few times,
+        // so caches are filled before anything is measured.
+        mViewHolder = mAdapter.onCreateViewHolder(new FrameLayout(context), 0);
+        for (int i = 0; i < 4; i++) {
+            mAdapter.onBindViewHolder(mViewHolder, i % 2);
+        }
+
+        RelativeTimeFormatter formatter = new RelativeTimeFormatter();
+        mDateLabels = new String[]{
+                formatter.format(mNewsObjects[0].getPublishedTime()),
+                formatter.format(mNewsObjects[1].getPublishedTime())
+        };
+    }
+
+    @Test
+    public void rebind_allocatesNothingBeyondSetText() throws Exception {
+        long setTextAllocations = countAllocations(new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 0; i < REBINDS; i++) {
+                    NewsObject newsObject = mNewsObjects[i % 2];
+                    mViewHolder.titleTextView.setText(newsObject.getTitle());
+                    mViewHolder.dateTextView.setText(mDateLabels[i % 2]);
+                    mViewHolder.categoryTextView.setText(newsObject.getInfoText());
+                }
+            }
+        });
+
+        long rebindAllocations = countAllocations(new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 0; i < REBINDS; i++) {
+                    mAdapter.onBindViewHolder(mViewHolder, i % 2);
+                }
+            }
+        });
+
+        assertTrue("onBindViewHolder allocated " + rebindAllocations + " objects on rebind, setText alone "
+                        + setTextAllocations,
+                rebindAllocations <= setTextAllocations);
+    }
+
+    /**
+     * Return the lowest number of objects allocated by the given code on this thread.
+     */
+    @SuppressWarnings("deprecation")
+    private static long countAllocations(Runnable code) {
+        long lowest = Long.MAX_VALUE;
+        for (int attempt = 0; attempt < ATTEMPTS; attempt++) {
+            Debug.resetThreadAllocCount();
+            Debug.startAllocCounting();
+            code.run();
+            Debug.stopAllocCounting();
+            lowest = Math.min(lowest, Debug.getThreadAllocCount());
+        }
+        return lowest;
+    }
+}
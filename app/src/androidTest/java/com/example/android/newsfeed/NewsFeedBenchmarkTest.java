@@ -0,0 +1,490 @@
+package com.example.android.newsfeed;
+
+import android.app.Activity;
+import android.app.Application;
+import android.app.Instrumentation;
+import android.content.Context;
+import android.content.Intent;
+import android.os.Bundle;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+import android.support.v4.view.ViewPager;
+import android.support.v7.widget.RecyclerView;
+import android.util.Log;
+import android.view.Choreographer;
+import android.view.View;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Instrumented benchmarks of what the user waits for: the start of {@link NewsFeedActivity}
+ * up to the first rendered article, swiping between the tabs, and the frame times while
+ * flinging a section list.
+ * <p>
+ * All requests are answered by a {@link FixtureTransport} on the device, so the numbers do
+ * not depend on the network or on the news of the day, and the device needs no connection.
+ * Times are taken from the {@link Choreographer} frame in which the awaited content is shown.
+ * The results are logged with the tag NewsFeedBenchmark and reported as instrumentation status
+ * (see "adb shell am instrument -r").
+ * <p>
+ * The process is already running when a test starts, so a "cold" start here is a first
+ * launch with empty caches and store, a "warm" start a relaunch with the news of the
+ * previous launch still in memory, and a "snapshot" start a relaunch with nothing but the
+ * {@link FeedSnapshot}s of the previous launch.
+ */
+@RunWith(AndroidJUnit4.class)
+public class NewsFeedBenchmarkTest {
+
+    private static final String LOG_TAG = "NewsFeedBenchmark";
+
+    /**
+     * Time (in milliseconds) every fixture response takes, about a fast mobile connection
+     */
+    private static final long FIXTURE_LATENCY = 50;
+
+    /**
+     * Number of measured launches of each kind
+     */
+    private static final int LAUNCHES = 5;
+
+    /**
+     * Number of times all tabs are swiped through
+     */
+    private static final int SWIPE_ROUNDS = 3;
+
+    /**
+     * Number of measured flings, alternately down and up
+     */
+    private static final int FLINGS = 10;
+
+    /**
+     * Fling velocity in pixels per second, about a quick flick of the thumb
+     */
+    private static final int FLING_VELOCITY = 8000;
+
+    /**
+     * Longest wait for any awaited content
+     */
+    private static final long TIMEOUT_MILLIS = 10000;
+
+    private Instrumentation mInstrumentation;
+    private Context mContext;
+    private FixtureTransport mTransport;
+
+    @Before
+    public void setUp() throws Exception {
+        mInstrumentation = InstrumentationRegistry.getInstrumentation();
+        mContext = InstrumentationRegistry.getTargetContext();
+        // Loaders only request news with a connection, even though no request leaves the device.
+        FragmentUtils.setInternetConnectedOverride(true);
+        FragmentUtils.setApiKey(TestUtils.TEST_API_KEY);
+
+        mTransport = new FixtureTransport(FIXTURE_LATENCY);
+        NewsHttpClient.getInstance().setTransport(mTransport);
+        NewsHttpClient.getInstance().resetCircuitBreakers();
+        clearNews();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        NewsHttpClient.getInstance().setTransport(new UrlConnectionTransport());
+        NewsHttpClient.getInstance().resetCircuitBreakers();
+        FragmentUtils.setInternetConnectedOverride(null);
+        FragmentUtils.setApiKey(null);
+        // Don't leave fixture articles behind for the app.
+        clearNews();
+    }
+
+    @Test
+    public void startup_coldAndWarm() throws Exception {
+        long[] coldTimes = new long[LAUNCHES];
+        long[] warmTimes = new long[LAUNCHES];
+        long[] snapshotTimes = new long[LAUNCHES];
+        for (int launch = 0; launch < LAUNCHES; launch++) {
+            clearNews();
+            coldTimes[launch] = measureLaunch();
+            warmTimes[launch] = measureLaunch();
+            // Only the snapshots of the previous launch are left, as after a process restart.
+            TestUtils.clearCachesAndStore(mContext);
+            snapshotTimes[launch] = measureLaunch();
+        }
+        report("startup_cold", coldTimes);
+        report("startup_warm", warmTimes);
+        report("startup_snapshot", snapshotTimes);
+    }
+
+    @Test
+    public void tabSwipe_latency() throws Exception {
+        LaunchWatcher watcher = launch();
+        final NewsFeedActivity activity = watcher.getActivity();
+        final ViewPager viewPager = activity.findViewById(R.id.viewpager);
+        int tabCount = viewPager.getAdapter().getCount();
+
+        List<Long> swipeTimes = new ArrayList<>();
+        for (int round = 0; round < SWIPE_ROUNDS; round++) {
+            // Swipe through all tabs to the last one, then back to the first one.
+            for (int step = 1; step < 2 * tabCount - 1; step++) {
+                final int target = step < tabCount ? step : 2 * tabCount - 2 - step;
+                final long[] startTime = new long[1];
+                mInstrumentation.runOnMainSync(new Runnable() {
+                    @Override
+                    public void run() {
+                        startTime[0] = System.nanoTime();
+                        viewPager.setCurrentItem(target, true);
+                    }
+                });
+                // Done when the tab has settled and shows its news.
+                long shownTime = awaitFrame(new Condition() {
+                    @Override
+                    public boolean isMet() {
+                        return viewPager.getCurrentItem() == target
+                                && viewPager.getScrollX() == target * viewPager.getWidth()
+                                && hasArticles(findList(activity, target));
+                    }
+                });
+                swipeTimes.add(shownTime - startTime[0]);
+            }
+        }
+        finish(watcher);
+        report("tab_swipe", toArray(swipeTimes));
+    }
+
+    @Test
+    public void allTabs_requestCount() throws Exception {
+        LaunchWatcher watcher = launch();
+        final NewsFeedActivity activity = watcher.getActivity();
+        final ViewPager viewPager = activity.findViewById(R.id.viewpager);
+        int tabCount = viewPager.getAdapter().getCount();
+
+        for (int tab = 1; tab < tabCount; tab++) {
+            final int target = tab;
+            mInstrumentation.runOnMainSync(new Runnable() {
+                @Override
+                public void run() {
+                    viewPager.setCurrentItem(target, false);
+                }
+            });
+            awaitFrame(new Condition() {
+                @Override
+                public boolean isMet() {
+                    return hasArticles(findList(activity, target));
+                }
+            });
+        }
+        finish(watcher);
+
+        // One request per section loaded on its own, and one for all batched sections. Lists
+        // reaching the prefetch distance on a tall screen request their second page as well,
+        // so only first pages are counted.
+        int expected = 0;
+        boolean batched = false;
+        for (Section section : SectionRegistry.getSections()) {
+            if (section.isBatched() && FragmentUtils.BATCH_LOADING_ENABLED) {
+                batched = true;
+            } else {
+                expected++;
+            }
+        }
+        if (batched) {
+            expected++;
+        }
+        Bundle results = new Bundle();
+        int requests = mTransport.getFirstPageRequestCount();
+        results.putInt("all_tabs_requests", requests);
+        mInstrumentation.sendStatus(0, results);
+        Log.i(LOG_TAG, "all_tabs: " + requests + " first page requests ("
+                + mTransport.getRequestCount() + " in total)");
+        assertEquals(expected, requests);
+    }
+
+    @Test
+    public void fling_frameTimes() throws Exception {
+        LaunchWatcher watcher = launch();
+        final NewsFeedActivity activity = watcher.getActivity();
+        final RecyclerView list = findList(activity, 0);
+        final FrameTimeRecorder recorder = new FrameTimeRecorder();
+
+        for (int fling = 0; fling < FLINGS; fling++) {
+            final int velocity = fling % 2 == 0 ? FLING_VELOCITY : -FLING_VELOCITY;
+            mInstrumentation.runOnMainSync(new Runnable() {
+                @Override
+                public void run() {
+                    recorder.start();
+                    list.fling(0, velocity);
+                }
+            });
+            awaitFrame(new Condition() {
+                @Override
+                public boolean isMet() {
+                    return list.getScrollState() == RecyclerView.SCROLL_STATE_IDLE;
+                }
+            });
+            mInstrumentation.runOnMainSync(new Runnable() {
+                @Override
+                public void run() {
+                    recorder.stop();
+                }
+            });
+        }
+        finish(watcher);
+
+        long[] frameTimes = recorder.getFrameTimes();
+        assertTrue("No frames recorded while flinging", frameTimes.length > 0);
+        report("fling_frame", frameTimes);
+
+        // Frames taking longer than 1.5 refresh intervals have missed at least one vsync.
+        float refreshRate = activity.getWindowManager().getDefaultDisplay().getRefreshRate();
+        long jankThreshold = (long) (1.5e9 / refreshRate);
+        int janky = 0;
+        for (long frameTime : frameTimes) {
+            if (frameTime > jankThreshold) {
+                janky++;
+            }
+        }
+        Bundle results = new Bundle();
+        results.putInt("fling_frame_count", frameTimes.length);
+        results.putInt("fling_janky_frames", janky);
+        mInstrumentation.sendStatus(0, results);
+        Log.i(LOG_TAG, "fling: " + janky + " of " + frameTimes.length + " frames janky");
+    }
+
+    /**
+     * Launch the activity and return the time (in nanoseconds) until the first article
+     * of the current tab has been shown. The activity is finished afterwards.
+     */
+    private long measureLaunch() throws InterruptedException {
+        LaunchWatcher watcher = launch();
+        long launchTime = watcher.getFirstArticleTime() - watcher.getStartTime();
+        finish(watcher);
+        return launchTime;
+    }
+
+    /**
+     * Launch the activity and wait until the first article of the current tab has been shown.
+     */
+    private LaunchWatcher launch() throws InterruptedException {
+        final LaunchWatcher watcher = new LaunchWatcher();
+        Application application = (Application) mContext.getApplicationContext();
+        application.registerActivityLifecycleCallbacks(watcher);
+
+        Intent intent = new Intent(mContext, NewsFeedActivity.class);
+        intent.addFlags(Intent.FLAG_ACTIVITY_NEW_TASK);
+        watcher.mStartTime = System.nanoTime();
+        mInstrumentation.startActivitySync(intent);
+
+        assertTrue("No article shown after launch",
+                watcher.mFirstArticle.await(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS));
+        return watcher;
+    }
+
+    /**
+     * Finish the launched activity and wait until it has been destroyed.
+     */
+    private void finish(LaunchWatcher watcher) throws InterruptedException {
+        final Activity activity = watcher.getActivity();
+        mInstrumentation.runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                activity.finish();
+            }
+        });
+        assertTrue("Activity not destroyed",
+                watcher.mDestroyed.await(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS));
+        Application application = (Application) mContext.getApplicationContext();
+        application.unregisterActivityLifecycleCallbacks(watcher);
+        mInstrumentation.waitForIdleSync();
+    }
+
+    private void clearNews() {
+        TestUtils.clearNews(mContext);
+    }
+
+    /**
+     * Wait for the first frame in which the condition is met, checking it on the main thread
+     * at the start of every frame.
+     *
+     * @return the frame time (in nanoseconds, as {@link System#nanoTime()}) - the previous
+     * frame, which drew the awaited content, is displayed at this time
+     */
+    private long awaitFrame(final Condition condition) throws InterruptedException {
+        final CountDownLatch met = new CountDownLatch(1);
+        final long[] frameTime = new long[1];
+        mInstrumentation.runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                Choreographer.getInstance().postFrameCallback(new Choreographer.FrameCallback() {
+                    @Override
+                    public void doFrame(long frameTimeNanos) {
+                        if (condition.isMet()) {
+                            frameTime[0] = frameTimeNanos;
+                            met.countDown();
+                        } else {
+                            Choreographer.getInstance().postFrameCallback(this);
+                        }
+                    }
+                });
+            }
+        });
+        assertTrue("Timed out waiting for a frame",
+                met.await(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS));
+        return frameTime[0];
+    }
+
+    /**
+     * Return the list of the tab at the given position, or null if it has not been created.
+     * Call on the main thread.
+     */
+    private static RecyclerView findList(NewsFeedActivity activity, int position) {
+        ViewPager viewPager = activity.findViewById(R.id.viewpager);
+        SectionFragment fragment =
+                ((CategoryFragmentPagerAdapter) viewPager.getAdapter()).getFragment(position);
+        View view = fragment == null ? null : fragment.getView();
+        return view == null ? null : (RecyclerView) view.findViewById(R.id.list);
+    }
+
+    /**
+     * Return whether the list has been laid out with at least one article.
+     */
+    private static boolean hasArticles(RecyclerView list) {
+        return list != null && list.getChildCount() > 0;
+    }
+
+    private void report(String name, long[] times) {
+        TestUtils.report(mInstrumentation, LOG_TAG, name, times);
+    }
+
+    private static long[] toArray(List<Long> values) {
+        long[] array = new long[values.size()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = values.get(i);
+        }
+        return array;
+    }
+
+    /**
+     * A condition checked on the main thread.
+     */
+    private interface Condition {
+        boolean isMet();
+    }
+
+    /**
+     * Follows a launched {@link NewsFeedActivity}: notes when the first article of its current
+     * tab is shown, and when the activity is destroyed.
+     */
+    private static final class LaunchWatcher implements Application.ActivityLifecycleCallbacks,
+            Choreographer.FrameCallback {
+        final CountDownLatch mFirstArticle = new CountDownLatch(1);
+        final CountDownLatch mDestroyed = new CountDownLatch(1);
+        volatile long mStartTime;
+        volatile long mFirstArticleTime;
+        volatile NewsFeedActivity mActivity;
+
+        NewsFeedActivity getActivity() {
+            return mActivity;
+        }
+
+        long getStartTime() {
+            return mStartTime;
+        }
+
+        long getFirstArticleTime() {
+            return mFirstArticleTime;
+        }
+
+        @Override
+        public void onActivityCreated(Activity activity, Bundle savedInstanceState) {
+            if (activity instanceof NewsFeedActivity && mActivity == null) {
+                mActivity = (NewsFeedActivity) activity;
+                // Check every frame from now on until the first article is there.
+                Choreographer.getInstance().postFrameCallback(this);
+            }
+        }
+
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            ViewPager viewPager = mActivity.findViewById(R.id.viewpager);
+            if (viewPager != null && hasArticles(findList(mActivity, viewPager.getCurrentItem()))) {
+                mFirstArticleTime = frameTimeNanos;
+                mFirstArticle.countDown();
+            } else if (!mActivity.isFinishing()) {
+                Choreographer.getInstance().postFrameCallback(this);
+            }
+        }
+
+        @Override
+        public void onActivityDestroyed(Activity activity) {
+            if (activity == mActivity) {
+                mDestroyed.countDown();
+            }
+        }
+
+        @Override
+        public void onActivityStarted(Activity activity) {
+        }
+
+        @Override
+        public void onActivityResumed(Activity activity) {
+        }
+
+        @Override
+        public void onActivityPaused(Activity activity) {
+        }
+
+        @Override
+        public void onActivityStopped(Activity activity) {
+        }
+
+        @Override
+        public void onActivitySaveInstanceState(Activity activity, Bundle outState) {
+        }
+    }
+
+    /**
+     * Records the time of every frame (in nanoseconds) between start() and stop().
+     * Use on the main thread only.
+     */
+    private static final class FrameTimeRecorder implements Choreographer.FrameCallback {
+        private final List<Long> mFrameTimes = new ArrayList<>();
+        private boolean mRecording;
+        private long mLastFrameTime;
+
+        void start() {
+            mRecording = true;
+            mLastFrameTime = 0;
+            Choreographer.getInstance().postFrameCallback(this);
+        }
+
+        void stop() {
+            mRecording = false;
+            Choreographer.getInstance().removeFrameCallback(this);
+        }
+
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            if (!mRecording) {
+                return;
+            }
+            if (mLastFrameTime != 0) {
+                mFrameTimes.add(frameTimeNanos - mLastFrameTime);
+            }
+            mLastFrameTime = frameTimeNanos;
+            Choreographer.getInstance().postFrameCallback(this);
+        }
+
+        long[] getFrameTimes() {
+            return toArray(mFrameTimes);
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.example.android.newsfeed;
+
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+import android.util.Log;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Instrumented benchmark comparing the full payload (contributor tags) with the minimal
+ * payload (byline field) of the same Guardian request: bytes over the wire and parse time.
+ * <p>
+ * Needs an Internet connection - it is skipped without one. The results are logged with the
+ * tag PayloadBenchmark.
+ */
+@RunWith(AndroidJUnit4.class)
+public class PayloadBenchmarkTest {
+
+    private static final String LOG_TAG = "PayloadBenchmark";
+
+    /**
+     * Number of times each response is parsed, the median time is reported
+     */
+    private static final int PARSE_RUNS = 21;
+
+    /**
+     * Section requested in both modes
+     */
+    private static final String SECTION = "technology";
+
+    @Before
+    public void setUp() throws Exception {
+        assumeTrue("Benchmark needs an Internet connection",
+                FragmentUtils.isMyInternetConnected(InstrumentationRegistry.getTargetContext()));
+    }
+
+    @Test
+    public void minimalPayload_isSmallerWithSameNews() throws Exception {
+        Measurement full = measure(FragmentUtils.buildRequestUrl(SECTION, false));
+        Measurement minimal = measure(FragmentUtils.buildRequestUrl(SECTION, true));
+
+        Log.i(LOG_TAG, "full:    " + full);
+        Log.i(LOG_TAG, "minimal: " + minimal);
+
+        assertTrue("Minimal payload is not smaller over the wire",
+                minimal.wireBytes < full.wireBytes);
+        // Both modes must give the same news - the authors may only be formatted differently.
+        assertEquals(full.itemCount, minimal.itemCount);
+    }
+
+    /**
+     * Download the response of the URL once, then parse it {@link #PARSE_RUNS} times.
+     */
+    private static Measurement measure(String requestUrl) throws IOException {
+        Measurement measurement = new Measurement();
+
+        // Count the compressed bytes received, the body is decompressed by the client.
+        PipelineMetrics.takeThreadBytes();
+        HttpResponse response = NewsHttpClient.getInstance().get(new URL(requestUrl),
+                Collections.<String, String>emptyMap());
+        byte[] body;
+        try {
+            assertEquals(200, response.getCode());
+            body = readFully(response.getBody());
+        } finally {
+            response.close();
+        }
+        measurement.wireBytes = PipelineMetrics.takeThreadBytes();
+        measurement.bodyBytes = body.length;
+
+        long[] parseTimes = new long[PARSE_RUNS];
+        for (int run = 0; run < PARSE_RUNS; run++) {
+            long startTime = System.nanoTime();
+            List<NewsObject> newsObjects =
+                    QueryUtils.extractNewsObjectsFromStream(new ByteArrayInputStream(body));
+            parseTimes[run] = System.nanoTime() - startTime;
+            assertNotNull(newsObjects);
+            measurement.itemCount = newsObjects.size();
+        }
+        Arrays.sort(parseTimes);
+        measurement.medianParseMicros = parseTimes[PARSE_RUNS / 2] / 1000;
+        return measurement;
+    }
+
+    private static byte[] readFully(InputStream inputStream) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = inputStream.read(buffer)) != -1) {
+            output.write(buffer, 0, read);
+        }
+        return output.toByteArray();
+    }
+
+    private static final class Measurement {
+        long wireBytes;
+        long bodyBytes;
+        int itemCount;
+        long medianParseMicros;
+
+        @Override
+        public String toString() {
+            return wireBytes + " bytes over the wire, " + bodyBytes + " bytes JSON, "
+                    + itemCount + " items, parsed in " + medianParseMicros + " us (median)";
+        }
+    }
+}
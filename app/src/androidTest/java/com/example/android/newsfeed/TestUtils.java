@@ -0,0 +1,79 @@
+package com.example.android.newsfeed;
+
+import android.app.Instrumentation;
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.os.Bundle;
+import android.util.Log;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Helpers shared by the instrumented benchmarks and load tests.
+ */
+final class TestUtils {
+
+    /**
+     * API key of requests answered on the device, counted apart from the real key's quota
+     */
+    static final String TEST_API_KEY = "test";
+
+    /**
+     * Create a private constructor because no one should ever create a {@link TestUtils} object.
+     */
+    private TestUtils() {
+    }
+
+    /**
+     * Forget all news held in memory, in the store and in the snapshots, as on a first launch.
+     */
+    static void clearNews(Context context) {
+        clearCachesAndStore(context);
+        FeedSnapshot.deleteAll(context);
+    }
+
+    /**
+     * Forget all news held in memory and in the store, but keep the snapshots, as after
+     * a process restart.
+     */
+    static void clearCachesAndStore(Context context) {
+        SectionCache.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_COMPLETE);
+        QueryUtils.clearRecentResults();
+        NewsBatch.clear();
+        NewsStore.deleteAll(context);
+    }
+
+    /**
+     * Log the percentiles of the given times (in nanoseconds) and report them in milliseconds
+     * as instrumentation status, e.g. "startup_cold_p50_ms".
+     *
+     * @param logTag tag of the log message
+     */
+    static void report(Instrumentation instrumentation, String logTag, String name,
+                       long[] times) {
+        long[] sorted = times.clone();
+        Arrays.sort(sorted);
+        Bundle results = new Bundle();
+        StringBuilder log = new StringBuilder(name).append(":");
+        for (int percentile : new int[]{50, 90, 95, 99}) {
+            double millis = percentile(sorted, percentile) / 1e6;
+            results.putDouble(name + "_p" + percentile + "_ms", millis);
+            log.append(String.format(Locale.US, " p%d=%.1f ms", percentile, millis));
+        }
+        double maxMillis = sorted[sorted.length - 1] / 1e6;
+        results.putDouble(name + "_max_ms", maxMillis);
+        log.append(String.format(Locale.US, " max=%.1f ms (n=%d)", maxMillis, sorted.length));
+
+        instrumentation.sendStatus(0, results);
+        Log.i(logTag, log.toString());
+    }
+
+    /**
+     * Return the value below which the given percentage of the sorted values are.
+     */
+    private static long percentile(long[] sorted, int percentile) {
+        int rank = (int) Math.ceil(percentile / 100.0 * sorted.length);
+        return sorted[Math.max(0, rank - 1)];
+    }
+}
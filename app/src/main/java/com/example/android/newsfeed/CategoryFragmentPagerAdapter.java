@@ -3,13 +3,18 @@ package com.example.android.newsfeed;
 import android.content.Context;
 import android.support.v4.app.Fragment;
 import android.support.v4.app.FragmentManager;
-import android.support.v4.app.FragmentPagerAdapter;
+import android.support.v4.app.FragmentStatePagerAdapter;
+import android.util.SparseArray;
+import android.view.ViewGroup;
 
 /**
- * {@link CategoryFragmentPagerAdapter} is a {@link FragmentPagerAdapter} that can provide the layout for
- * each list item based on a data source which is a list of {@link NewsObject} objects.
+ * {@link CategoryFragmentPagerAdapter} is a {@link FragmentStatePagerAdapter} that provides a
+ * {@link SectionFragment} for every section of the {@link SectionRegistry}.
+ * <p>
+ * Fragments of tabs far from the visible one are destroyed (keeping only their saved state),
+ * so the number of sections does not affect memory use.
  */
-public class CategoryFragmentPagerAdapter extends FragmentPagerAdapter {
+public class CategoryFragmentPagerAdapter extends FragmentStatePagerAdapter {
 
     /**
      * Context of the app
@@ -17,9 +22,9 @@ public class CategoryFragmentPagerAdapter extends FragmentPagerAdapter {
     private Context mContext;
 
     /**
-     * Number of views in viewPager
+     * Fragments currently created by this adapter, by position
      */
-    public static final int NUM_ITEMS = 4;
+    private final SparseArray<SectionFragment> mFragments = new SparseArray<>();
 
     /**
      * Create a new {@link CategoryFragmentPagerAdapter} object.
@@ -38,30 +43,32 @@ public class CategoryFragmentPagerAdapter extends FragmentPagerAdapter {
      */
     @Override
     public Fragment getItem(int position) {
-        // Set Fragments under each Tab
-        if (position == 0) {
-            return new TechnologyFragment();
-        } else if (position == 1) {
-            return new WorldFragment();
-        } else if (position == 2) {
-            return new ScienceFragment();
-        } else {
-            return new BusinessFragment();
-        }
+        return SectionFragment.newInstance(position);
+    }
+
+    @Override
+    public Object instantiateItem(ViewGroup container, int position) {
+        SectionFragment fragment = (SectionFragment) super.instantiateItem(container, position);
+        mFragments.put(position, fragment);
+        return fragment;
+    }
+
+    @Override
+    public void destroyItem(ViewGroup container, int position, Object object) {
+        mFragments.remove(position);
+        super.destroyItem(container, position, object);
+    }
+
+    /**
+     * Return the fragment at the given position, or null if it is not created at the moment.
+     */
+    public SectionFragment getFragment(int position) {
+        return mFragments.get(position);
     }
 
     @Override
     public CharSequence getPageTitle(int position) {
-        // Set titles of Tabs
-        if (position == 0) {
-            return mContext.getString(R.string.category_technology);
-        } else if (position == 1) {
-            return mContext.getString(R.string.category_world);
-        } else if (position == 2) {
-            return mContext.getString(R.string.category_science);
-        } else {
-            return mContext.getString(R.string.category_business);
-        }
+        return SectionRegistry.getSection(position).getTitle(mContext);
     }
 
     /**
@@ -69,6 +76,6 @@ public class CategoryFragmentPagerAdapter extends FragmentPagerAdapter {
      */
     @Override
     public int getCount() {
-        return NUM_ITEMS;
+        return SectionRegistry.size();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,92 @@
+package com.example.android.newsfeed;
+
+import android.os.SystemClock;
+
+/**
+ * Circuit breaker of a single API endpoint.
+ * <p>
+ * After {@link #FAILURE_THRESHOLD} failed requests in a row the circuit opens: no requests are
+ * made for {@link #OPEN_DURATION} milliseconds (or as long as the server asked for with
+ * Retry-After). After that a single trial request is let through - if it succeeds the circuit
+ * closes again, if it fails the circuit opens again.
+ */
+
+public class CircuitBreaker {
+
+    /**
+     * Number of failed requests in a row which opens the circuit
+     */
+    private static final int FAILURE_THRESHOLD = 5;
+
+    /**
+     * Time (in milliseconds) the circuit stays open, unless the server asks for longer
+     */
+    private static final long OPEN_DURATION = 30 * 1000;
+
+    /**
+     * Number of failed requests since the last successful one
+     */
+    private int mConsecutiveFailures;
+
+    /**
+     * Time (SystemClock.elapsedRealtime) until which the circuit is open, 0 while it is closed
+     */
+    private long mOpenUntil;
+
+    /**
+     * Whether the trial request after the circuit has been open is in flight
+     */
+    private boolean mTrialInFlight;
+
+    /**
+     * Return whether a request may be made now. While the circuit is open the answer is no,
+     * afterwards it is yes for a single trial request until its outcome has been recorded.
+     */
+    public synchronized boolean allowRequest() {
+        if (mOpenUntil == 0) {
+            return true;
+        }
+        if (SystemClock.elapsedRealtime() < mOpenUntil || mTrialInFlight) {
+            return false;
+        }
+        mTrialInFlight = true;
+        return true;
+    }
+
+    /**
+     * Record a successful request, which closes the circuit.
+     */
+    public synchronized void recordSuccess() {
+        mConsecutiveFailures = 0;
+        mOpenUntil = 0;
+        mTrialInFlight = false;
+    }
+
+    /**
+     * Record a request which has been cancelled before its outcome was known.
+     */
+    public synchronized void recordCancel() {
+        mTrialInFlight = false;
+    }
+
+    /**
+     * Record a failed request, which opens the circuit if there have been too many in a row,
+     * if it was the trial request, or if the server asked not to be called for a while.
+     *
+     * @param retryAfter time (in milliseconds) the server asked to wait, 0 if it did not
+     */
+    public synchronized void recordFailure(long retryAfter) {
+        mConsecutiveFailures++;
+        if (mConsecutiveFailures >= FAILURE_THRESHOLD || mTrialInFlight || retryAfter > 0) {
+            mOpenUntil = SystemClock.elapsedRealtime() + Math.max(OPEN_DURATION, retryAfter);
+        }
+        mTrialInFlight = false;
+    }
+
+    /**
+     * Return how long (in milliseconds) the circuit stays open, 0 if requests may be made.
+     */
+    public synchronized long getRemainingOpenTime() {
+        return Math.max(0, mOpenUntil - SystemClock.elapsedRealtime());
+    }
+}
@@ -0,0 +1,21 @@
+package com.example.android.newsfeed;
+
+import java.io.IOException;
+
+/**
+ * Thrown by {@link NewsHttpClient} instead of making a request to an endpoint whose
+ * {@link CircuitBreaker} is open.
+ */
+
+public class CircuitOpenException extends IOException {
+
+    /**
+     * Create a new {@link CircuitOpenException}.
+     *
+     * @param endpoint     which is not called at the moment
+     * @param remainingTime time (in milliseconds) until requests are made again
+     */
+    public CircuitOpenException(String endpoint, long remainingTime) {
+        super("Circuit open for " + endpoint + ", retrying in " + remainingTime + " ms");
+    }
+}
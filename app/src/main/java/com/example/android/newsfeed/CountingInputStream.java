@@ -0,0 +1,55 @@
+package com.example.android.newsfeed;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * {@link InputStream} adding the number of bytes read from it, and the time spent waiting for
+ * them, to the current thread and its request in {@link PipelineMetrics}.
+ */
+
+public class CountingInputStream extends FilterInputStream {
+
+    /**
+     * Create a new {@link CountingInputStream} reading from the given stream.
+     *
+     * @param in is the stream whose bytes are counted
+     */
+    public CountingInputStream(InputStream in) {
+        super(in);
+    }
+
+    @Override
+    public int read() throws IOException {
+        long startTime = System.nanoTime();
+        int b = super.read();
+        PipelineMetrics.addStageTime(PipelineMetrics.STAGE_DOWNLOAD, System.nanoTime() - startTime);
+        if (b != -1) {
+            PipelineMetrics.addBytes(1);
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int count) throws IOException {
+        long startTime = System.nanoTime();
+        int read = super.read(buffer, offset, count);
+        PipelineMetrics.addStageTime(PipelineMetrics.STAGE_DOWNLOAD, System.nanoTime() - startTime);
+        if (read > 0) {
+            PipelineMetrics.addBytes(read);
+        }
+        return read;
+    }
+
+    @Override
+    public long skip(long count) throws IOException {
+        long startTime = System.nanoTime();
+        long skipped = super.skip(count);
+        PipelineMetrics.addStageTime(PipelineMetrics.STAGE_DOWNLOAD, System.nanoTime() - startTime);
+        if (skipped > 0) {
+            PipelineMetrics.addBytes(skipped);
+        }
+        return skipped;
+    }
+}
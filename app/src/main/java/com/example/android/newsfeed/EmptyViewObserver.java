@@ -0,0 +1,59 @@
+package com.example.android.newsfeed;
+
+import android.support.v7.widget.RecyclerView;
+import android.view.View;
+
+/**
+ * Shows the empty view instead of the {@link RecyclerView} whenever its adapter has no items,
+ * like {@link android.widget.AdapterView#setEmptyView(View)} does for a ListView.
+ */
+
+public class EmptyViewObserver extends RecyclerView.AdapterDataObserver {
+
+    /**
+     * The list
+     */
+    private final RecyclerView mRecyclerView;
+
+    /**
+     * View displayed when the list is empty
+     */
+    private final View mEmptyView;
+
+    /**
+     * Create a new {@link EmptyViewObserver} and register it with the adapter of the list.
+     *
+     * @param recyclerView whose adapter is observed, the adapter must already be set
+     * @param emptyView    displayed when the list is empty
+     */
+    public EmptyViewObserver(RecyclerView recyclerView, View emptyView) {
+        mRecyclerView = recyclerView;
+        mEmptyView = emptyView;
+        recyclerView.getAdapter().registerAdapterDataObserver(this);
+        update();
+    }
+
+    @Override
+    public void onChanged() {
+        update();
+    }
+
+    @Override
+    public void onItemRangeInserted(int positionStart, int itemCount) {
+        update();
+    }
+
+    @Override
+    public void onItemRangeRemoved(int positionStart, int itemCount) {
+        update();
+    }
+
+    /**
+     * Show either the list or the empty view.
+     */
+    private void update() {
+        boolean empty = mRecyclerView.getAdapter().getItemCount() == 0;
+        mRecyclerView.setVisibility(empty ? View.GONE : View.VISIBLE);
+        mEmptyView.setVisibility(empty ? View.VISIBLE : View.GONE);
+    }
+}
@@ -0,0 +1,274 @@
+package com.example.android.newsfeed;
+
+import android.content.Context;
+import android.os.SystemClock;
+import android.support.annotation.VisibleForTesting;
+import android.util.Log;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact binary snapshot of the first page of news last shown in every section, so a
+ * {@link SectionFragment} can show headlines in its first frame, before its loader has even
+ * started.
+ * <p>
+ * A snapshot is written in the background after the loader delivered the news, and read on
+ * the main thread through a memory-mapped file: a few KB of length-prefixed UTF-8 strings, read
+ * without the database, the JSON parser or a thread switch. Snapshots are replaced atomically,
+ * so a reader never sees a half written one, and any snapshot that cannot be read is deleted.
+ * <p>
+ * Format: magic number, list key, number of NewsObjects, then for each of them its title,
+ * section ID, category, publication date, publication time (a long, so the date is not parsed
+ * again), URL and author. Every string is its length in bytes (-1 for null) followed by its
+ * UTF-8 bytes.
+ */
+
+public final class FeedSnapshot {
+
+    /**
+     * Tag for log messages
+     */
+    private static final String LOG_TAG = FeedSnapshot.class.getSimpleName();
+
+    /**
+     * Start of every snapshot ("NFS" and the format version), changed with the format
+     */
+    private static final int MAGIC = 0x4E465302;
+
+    /**
+     * Number of NewsObjects in a snapshot, the ones the first screen can show
+     */
+    private static final int MAX_NEWS_OBJECTS = FragmentUtils.PAGE_SIZE;
+
+    /**
+     * Largest snapshot read, anything larger is not one of ours
+     */
+    private static final int MAX_FILE_SIZE = 256 * 1024;
+
+    /**
+     * Directory of the snapshots, below the app's files directory
+     */
+    private static final String DIRECTORY_NAME = "snapshots";
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    /**
+     * Last list written (or read) for each list key, so the same list is not written again
+     * every time it is delivered. Guarded by itself.
+     */
+    private static final Map<String, List<NewsObject>> sLastLists = new HashMap<>();
+
+    /**
+     * Create a private constructor because no one should ever create a {@link FeedSnapshot} object.
+     */
+    private FeedSnapshot() {
+    }
+
+    /**
+     * Read the snapshot of a list. Fast enough to be called on the main thread while the
+     * first frame is built.
+     *
+     * @param listKey e.g. the section name (see {@link NewsLoader#getListKey()})
+     * @return the NewsObjects of the snapshot, or null if there is none.
+     */
+    public static List<NewsObject> read(Context context, String listKey) {
+        File file = getFile(context, listKey);
+        long length = file.length();
+        if (length == 0 || length > MAX_FILE_SIZE) {
+            return null;
+        }
+
+        long startTime = SystemClock.elapsedRealtime();
+        PipelineMetrics.beginTrace("News:snapshot");
+        try {
+            FileInputStream in = new FileInputStream(file);
+            MappedByteBuffer buffer;
+            try {
+                // The mapping stays valid after the channel is closed.
+                buffer = in.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, length);
+            } finally {
+                in.close();
+            }
+
+            // Strings are copied out of the mapping through one scratch array.
+            byte[] scratch = new byte[256];
+            if (buffer.getInt() != MAGIC || !listKey.equals(readString(buffer, scratch))) {
+                // Another format, or a list key with the same hash code.
+                return null;
+            }
+            int count = buffer.getInt();
+            if (count < 0 || count > MAX_NEWS_OBJECTS) {
+                throw new IOException("Invalid number of news: " + count);
+            }
+            List<NewsObject> newsObjects = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                String title = readString(buffer, scratch);
+                String sectionId = readString(buffer, scratch);
+                String category = readString(buffer, scratch);
+                String publishedDate = readString(buffer, scratch);
+                long publishedTime = buffer.getLong();
+                String newsUrl = readString(buffer, scratch);
+                String author = readString(buffer, scratch);
+                newsObjects.add(new NewsObject(title, sectionId, category, publishedDate,
+                        publishedTime, newsUrl, author));
+            }
+            synchronized (sLastLists) {
+                sLastLists.put(listKey, newsObjects);
+            }
+            Log.d(LOG_TAG, "Read " + count + " news of " + listKey + " in "
+                    + (SystemClock.elapsedRealtime() - startTime) + " ms");
+            return Collections.unmodifiableList(newsObjects);
+        } catch (IOException | BufferUnderflowException | IllegalArgumentException e) {
+            // Truncated or corrupt - it will be written again after the next load.
+            Log.e(LOG_TAG, "Problem reading the snapshot of " + listKey, e);
+            if (!file.delete()) {
+                Log.w(LOG_TAG, "Could not delete " + file);
+            }
+            return null;
+        } finally {
+            PipelineMetrics.endTrace();
+        }
+    }
+
+    /**
+     * Write the snapshot of a list on the {@link NewsExecutor}, replacing the previous one,
+     * unless it holds the same news already.
+     *
+     * @param listKey     e.g. the section name (see {@link NewsLoader#getListKey()})
+     * @param newsObjects as shown, only the first {@link #MAX_NEWS_OBJECTS} are written
+     */
+    public static void write(Context context, final String listKey, List<NewsObject> newsObjects) {
+        final List<NewsObject> snapshot = Collections.unmodifiableList(new ArrayList<>(
+                newsObjects.subList(0, Math.min(newsObjects.size(), MAX_NEWS_OBJECTS))));
+        synchronized (sLastLists) {
+            if (snapshot.equals(sLastLists.get(listKey))) {
+                return;
+            }
+            sLastLists.put(listKey, snapshot);
+        }
+
+        final Context appContext = context.getApplicationContext();
+        NewsExecutor.get().execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    writeFile(getFile(appContext, listKey), listKey, snapshot);
+                } catch (IOException e) {
+                    Log.e(LOG_TAG, "Problem writing the snapshot of " + listKey, e);
+                    synchronized (sLastLists) {
+                        sLastLists.remove(listKey);
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Delete all snapshots, e.g. to measure a start without them.
+     */
+    @VisibleForTesting
+    public static void deleteAll(Context context) {
+        synchronized (sLastLists) {
+            sLastLists.clear();
+        }
+        File[] files = new File(context.getFilesDir(), DIRECTORY_NAME).listFiles();
+        if (files != null) {
+            for (File file : files) {
+                if (!file.delete()) {
+                    Log.w(LOG_TAG, "Could not delete " + file);
+                }
+            }
+        }
+    }
+
+    /**
+     * Write a snapshot to a temporary file, then move it into place. Writes of the same list
+     * from two executor threads take turns.
+     */
+    private static synchronized void writeFile(File file, String listKey,
+                                               List<NewsObject> newsObjects) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(4096);
+        DataOutputStream data = new DataOutputStream(bytes);
+        data.writeInt(MAGIC);
+        writeString(data, listKey);
+        data.writeInt(newsObjects.size());
+        for (NewsObject newsObject : newsObjects) {
+            writeString(data, newsObject.getTitle());
+            writeString(data, newsObject.getSectionId());
+            writeString(data, newsObject.getCategory());
+            writeString(data, newsObject.getPublishedDate());
+            data.writeLong(newsObject.getPublishedTime());
+            writeString(data, newsObject.getNewsUrl());
+            writeString(data, newsObject.getAuthor());
+        }
+        data.flush();
+
+        File directory = file.getParentFile();
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Cannot create " + directory);
+        }
+        File tempFile = new File(directory, file.getName() + ".tmp");
+        FileOutputStream out = new FileOutputStream(tempFile);
+        try {
+            bytes.writeTo(out);
+            // Make sure the new snapshot is on disk before it replaces the old one.
+            out.getFD().sync();
+        } finally {
+            out.close();
+        }
+        if (!tempFile.renameTo(file)) {
+            throw new IOException("Cannot rename " + tempFile + " to " + file);
+        }
+    }
+
+    /**
+     * Return the snapshot file of a list key, which may not exist.
+     */
+    private static File getFile(Context context, String listKey) {
+        // List keys are section names or URLs - the key itself is checked when reading.
+        return new File(new File(context.getFilesDir(), DIRECTORY_NAME),
+                Integer.toHexString(listKey.hashCode()) + ".snap");
+    }
+
+    private static void writeString(DataOutputStream data, String value) throws IOException {
+        if (value == null) {
+            data.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(UTF_8);
+        data.writeInt(bytes.length);
+        data.write(bytes);
+    }
+
+    /**
+     * Read a string written by {@link #writeString(DataOutputStream, String)}.
+     *
+     * @param scratch array to copy the bytes into, unless the string is longer
+     */
+    private static String readString(MappedByteBuffer buffer, byte[] scratch) {
+        int length = buffer.getInt();
+        if (length == -1) {
+            return null;
+        }
+        if (length < 0 || length > buffer.remaining()) {
+            throw new IllegalArgumentException("Invalid string length: " + length);
+        }
+        byte[] bytes = length <= scratch.length ? scratch : new byte[length];
+        buffer.get(bytes, 0, length);
+        return new String(bytes, 0, length, UTF_8);
+    }
+}
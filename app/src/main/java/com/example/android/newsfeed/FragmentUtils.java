@@ -7,9 +7,9 @@ import android.net.ConnectivityManager;
 import android.net.NetworkInfo;
 import android.net.Uri;
 import android.support.annotation.NonNull;
+import android.support.annotation.VisibleForTesting;
 import android.util.Log;
 import android.view.Gravity;
-import android.widget.AdapterView;
 import android.widget.TextView;
 import android.widget.Toast;
 
@@ -25,10 +25,10 @@ public final class FragmentUtils {
     private static final String LOG_TAG = FragmentUtils.class.getName();
 
     /**
-     * URL for NewsObjects data from The Guardian API (base).
+     * URL for NewsObjects data from The Guardian API (base). Set at build time with
+     * -PguardianApiBaseUrl, e.g. to point a debug build at a local GuardianMockServer.
      */
-    private static final String GUARDIAN_API_BASE_URL =
-            "https://content.guardianapis.com/search";
+    private static final String GUARDIAN_API_BASE_URL = BuildConfig.GUARDIAN_API_BASE_URL;
 
     /**
      * API KEY for NewsFeed app to use in NewsObjects API requests.
@@ -36,12 +36,42 @@ public final class FragmentUtils {
     private static final String API_KEY = "76b27996-1c8f-4b10-9181-a408024d474f";
 
     /**
-     * Constant value for the news loader ID (important when using multiple loaders).
+     * Number of NewsObjects requested per page. Responses are parsed as a stream, so raising
+     * this value does not require the whole response to fit in memory at once.
      */
-    public static final int NEWS_LOADER_ID_TECH = 0;
-    public static final int NEWS_LOADER_ID_WORLD = 1;
-    public static final int NEWS_LOADER_ID_SCIENCE = 2;
-    public static final int NEWS_LOADER_ID_BUSINESS = 3;
+    public static final int PAGE_SIZE = 20;
+
+    /**
+     * Whether batched sections are loaded together with a single combined request
+     * (see {@link NewsBatch} and {@link Section#isBatched()}).
+     */
+    public static final boolean BATCH_LOADING_ENABLED = true;
+
+    /**
+     * Whether the author is requested as the "byline" field of every NewsObject instead of
+     * its contributor tags. Each contributor tag comes with its ID, URLs, bio and more, which
+     * are downloaded and skipped by the parser without ever being used.
+     */
+    public static final boolean MINIMAL_PAYLOAD_ENABLED = true;
+
+    /**
+     * Builds the request URLs (the same ones on the device and in the JVM benchmarks).
+     * Replaced by {@link #setApiBaseUrl(String)}.
+     */
+    private static volatile GuardianRequests sRequests =
+            createRequests(GUARDIAN_API_BASE_URL, API_KEY);
+
+    /**
+     * Endpoint and API key of {@link #sRequests}. Guarded by FragmentUtils.class.
+     */
+    private static String sApiBaseUrl = GUARDIAN_API_BASE_URL;
+    private static String sApiKey = API_KEY;
+
+    /**
+     * Connectivity reported by {@link #isMyInternetConnected(Context)} instead of the actual
+     * one, null for the actual one. Set by {@link #setInternetConnectedOverride(Boolean)}.
+     */
+    private static volatile Boolean sInternetConnectedOverride;
 
     /**
      * Simple public constructor
@@ -50,12 +80,49 @@ public final class FragmentUtils {
     }
 
     /**
-     * Helper method for parsing URL from clicked News and setting Intent
+     * Send the requests built from now on to another endpoint, e.g. a local GuardianMockServer
+     * in the load tests. Loaders keep the URL they were created with.
+     *
+     * @param baseUrl URL of the /search endpoint, or null for {@link #GUARDIAN_API_BASE_URL}
+     */
+    @VisibleForTesting
+    public static synchronized void setApiBaseUrl(String baseUrl) {
+        sApiBaseUrl = baseUrl == null ? GUARDIAN_API_BASE_URL : baseUrl;
+        sRequests = createRequests(sApiBaseUrl, sApiKey);
+    }
+
+    /**
+     * Send the requests built from now on with another API key, e.g. so tests whose requests
+     * never reach the Guardian API don't spend the daily quota of the real key
+     * (see {@link RequestScheduler}). Loaders keep the URL they were created with.
+     *
+     * @param apiKey API key, or null for {@link #API_KEY}
+     */
+    @VisibleForTesting
+    public static synchronized void setApiKey(String apiKey) {
+        sApiKey = apiKey == null ? API_KEY : apiKey;
+        sRequests = createRequests(sApiBaseUrl, sApiKey);
+    }
+
+    /**
+     * Report the given connectivity instead of the actual one, e.g. so loaders request news
+     * from a local GuardianMockServer on a device without a network.
+     *
+     * @param connected connectivity to report, or null for the actual one
      */
-    public static Intent setOnNewsClickedAction(AdapterView<?> parent, int position) {
-        // Get the {@link NewsObject} object located at this position in the list
-        NewsObject currentNewsObject = (NewsObject) parent.getItemAtPosition(position);
+    @VisibleForTesting
+    public static void setInternetConnectedOverride(Boolean connected) {
+        sInternetConnectedOverride = connected;
+    }
 
+    private static GuardianRequests createRequests(String baseUrl, String apiKey) {
+        return new GuardianRequests(baseUrl, apiKey, PAGE_SIZE, MINIMAL_PAYLOAD_ENABLED);
+    }
+
+    /**
+     * Helper method for parsing URL from clicked News and setting Intent
+     */
+    public static Intent setOnNewsClickedAction(NewsObject currentNewsObject) {
 
         // Get the URL for the NewsObject item.
         String currentUrl = currentNewsObject.getNewsUrl();
@@ -73,6 +140,11 @@ public final class FragmentUtils {
     }
 
     public static boolean isMyInternetConnected(Context context) {
+        Boolean override = sInternetConnectedOverride;
+        if (override != null) {
+            return override;
+        }
+
         // Get a reference to the ConnectivityManager to check state of network connectivity
         ConnectivityManager connMgr =
                 (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE);
@@ -97,34 +169,72 @@ public final class FragmentUtils {
 
     @NonNull
     public static String buildRequestUrl(String sectionName) {
-        Uri baseUri = Uri.parse(GUARDIAN_API_BASE_URL);
-        Uri.Builder uriBuilder = baseUri.buildUpon();
-
-        uriBuilder.appendQueryParameter("format", "json");
-        uriBuilder.appendQueryParameter("section", sectionName); // e.g. section=technology
-        uriBuilder.appendQueryParameter("show-tags", "contributor");
-        uriBuilder.appendQueryParameter("page-size", "20");
-        uriBuilder.appendQueryParameter("order-by", "newest");
-        uriBuilder.appendQueryParameter("api-key", API_KEY);
-
-        Log.d(LOG_TAG, "Request URL: " + uriBuilder.toString());
-        return uriBuilder.toString();
+        return buildRequestUrl(sectionName, MINIMAL_PAYLOAD_ENABLED);
+    }
+
+    /**
+     * Build the request URL for the newest NewsObjects of a section, with or without
+     * the minimal payload (see {@link #MINIMAL_PAYLOAD_ENABLED}).
+     */
+    @VisibleForTesting
+    @NonNull
+    static String buildRequestUrl(String sectionName, boolean minimalPayload) {
+        String requestUrl = sRequests.buildRequestUrl(sectionName, minimalPayload);
+        Log.d(LOG_TAG, "Request URL: " + requestUrl);
+        return requestUrl;
     }
 
 
     @NonNull
     public static String buildRequestUrl(String tagOne, String tagTwo) {
-        Uri baseUri = Uri.parse(GUARDIAN_API_BASE_URL);
-        Uri.Builder uriBuilder = baseUri.buildUpon();
-
-        uriBuilder.appendQueryParameter("format", "json");
-        uriBuilder.appendQueryParameter("tag", tagOne + "/" + tagTwo); // e.g. tag=technology/technology gives more results than section=technology
-        uriBuilder.appendQueryParameter("show-tags", "contributor");
-        uriBuilder.appendQueryParameter("page-size", "20");
-        uriBuilder.appendQueryParameter("order-by", "newest");
-        uriBuilder.appendQueryParameter("api-key", API_KEY);
-
-        Log.d(LOG_TAG, "Request URL: " + uriBuilder.toString());
-        return uriBuilder.toString();
+        String requestUrl = sRequests.buildRequestUrl(tagOne, tagTwo);
+        Log.d(LOG_TAG, "Request URL: " + requestUrl);
+        return requestUrl;
+    }
+
+    /**
+     * Build the request URL for a further page of the results of the given request URL.
+     *
+     * @param firstPageUrl request URL of the first page, as built by buildRequestUrl
+     * @param page         number of the page to request, starting at 1
+     */
+    @NonNull
+    public static String buildPageRequestUrl(String firstPageUrl, int page) {
+        return GuardianRequests.buildPageRequestUrl(firstPageUrl, page);
+    }
+
+    /**
+     * Build the request URL for the NewsObjects of all sections matching the words of a search,
+     * most relevant first.
+     */
+    @NonNull
+    public static String buildSearchRequestUrl(String query) {
+        String requestUrl = sRequests.buildSearchRequestUrl(query);
+        Log.d(LOG_TAG, "Search request URL: " + requestUrl);
+        return requestUrl;
+    }
+
+    /**
+     * Build the request URL for the NewsObjects of the given request URL published since
+     * the given date, e.g. to only fetch the news which are not stored yet.
+     *
+     * @param requestUrl    request URL, as built by buildRequestUrl
+     * @param publishedDate publication date of the newest known NewsObject
+     *                      (format "yyyy-MM-dd'T'HH:mm:ss'Z'")
+     */
+    @NonNull
+    public static String buildDeltaRequestUrl(String requestUrl, String publishedDate) {
+        return GuardianRequests.buildDeltaRequestUrl(requestUrl, publishedDate);
+    }
+
+    /**
+     * Build a request URL for the newest NewsObjects of all the given sections at once,
+     * e.g. section=technology|world, with room for a full page of each section.
+     */
+    @NonNull
+    public static String buildBatchRequestUrl(String... sectionNames) {
+        String requestUrl = sRequests.buildBatchRequestUrl(sectionNames);
+        Log.d(LOG_TAG, "Batch request URL: " + requestUrl);
+        return requestUrl;
     }
 }
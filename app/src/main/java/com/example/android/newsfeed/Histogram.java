@@ -0,0 +1,115 @@
+package com.example.android.newsfeed;
+
+import java.util.Locale;
+
+/**
+ * Distribution of non-negative values (e.g. durations in microseconds, or byte counts) in
+ * power of two buckets: bucket i counts the values from 2^i up to 2^(i+1) - 1, bucket 0 also
+ * counts 0. Percentiles are estimated as the upper bound of their bucket, so they are at most
+ * twice the exact value - enough to tell a 2 ms stage from a 200 ms one, in a fixed amount
+ * of memory however many values are recorded.
+ * <p>
+ * Not thread safe, access only while holding a common lock.
+ */
+
+final class Histogram {
+
+    /**
+     * Number of buckets, the last one counts all values from 2^(BUCKETS - 1) on
+     */
+    private static final int BUCKETS = 40;
+
+    /**
+     * Width of the longest bar drawn by {@link #appendBars(StringBuilder)}
+     */
+    private static final int BAR_WIDTH = 30;
+
+    private final long[] mBuckets = new long[BUCKETS];
+    private long mCount;
+    private long mSum;
+    private long mMax;
+
+    /**
+     * Add a value, negative values count as 0.
+     */
+    void record(long value) {
+        value = Math.max(0, value);
+        mBuckets[bucketOf(value)]++;
+        mCount++;
+        mSum += value;
+        mMax = Math.max(mMax, value);
+    }
+
+    long getCount() {
+        return mCount;
+    }
+
+    long getSum() {
+        return mSum;
+    }
+
+    /**
+     * Return the estimated value below which the given share of the values are.
+     *
+     * @param share between 0 and 1, e.g. 0.99 for the 99th percentile
+     * @return upper bound of the bucket of the percentile, 0 if nothing has been recorded.
+     */
+    long getPercentile(double share) {
+        if (mCount == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(share * mCount));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += mBuckets[i];
+            if (seen >= rank) {
+                // Never report more than the largest value actually recorded.
+                return Math.min(upperBoundOf(i), mMax);
+            }
+        }
+        return mMax;
+    }
+
+    /**
+     * Return a one line summary, e.g. "n=12 avg=340 p50=511 p90=1023 p99=2047 max=1800".
+     */
+    String getSummary() {
+        return String.format(Locale.US, "n=%d avg=%d p50=%d p90=%d p99=%d max=%d",
+                mCount, mCount == 0 ? 0 : mSum / mCount, getPercentile(0.5),
+                getPercentile(0.9), getPercentile(0.99), mMax);
+    }
+
+    /**
+     * Append a text bar chart of the non-empty buckets, one line per bucket.
+     */
+    void appendBars(StringBuilder out) {
+        long largest = 0;
+        for (long bucket : mBuckets) {
+            largest = Math.max(largest, bucket);
+        }
+        if (largest == 0) {
+            return;
+        }
+        for (int i = 0; i < BUCKETS; i++) {
+            if (mBuckets[i] == 0) {
+                continue;
+            }
+            out.append(String.format(Locale.US, "  <%9d |", upperBoundOf(i) + 1));
+            int width = (int) Math.max(1, mBuckets[i] * BAR_WIDTH / largest);
+            for (int w = 0; w < width; w++) {
+                out.append('#');
+            }
+            out.append(' ').append(mBuckets[i]).append('\n');
+        }
+    }
+
+    private static int bucketOf(long value) {
+        // Index of the highest bit set, 0 for 0 and 1.
+        int bucket = 63 - Long.numberOfLeadingZeros(Math.max(1, value));
+        return Math.min(bucket, BUCKETS - 1);
+    }
+
+    private static long upperBoundOf(int bucket) {
+        return bucket == BUCKETS - 1 ? Long.MAX_VALUE - 1 : (1L << (bucket + 1)) - 1;
+    }
+}
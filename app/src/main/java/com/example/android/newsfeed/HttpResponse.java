@@ -0,0 +1,111 @@
+package com.example.android.newsfeed;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * A response returned by a {@link HttpTransport}: status code, headers and body stream.
+ * <p>
+ * Closing the response reads what is left of the body before closing it, which lets the
+ * underlying connection go back to the pool and be reused for the next request.
+ */
+
+public final class HttpResponse implements Closeable {
+
+    /**
+     * Maximum number of unread body bytes skipped on close to make the connection reusable
+     */
+    private static final long MAX_DRAIN_BYTES = 64 * 1024;
+
+    /**
+     * HTTP status code
+     */
+    private final int mCode;
+
+    /**
+     * Response headers, keyed by lower case header name
+     */
+    private final Map<String, String> mHeaders;
+
+    /**
+     * Response body, may be null
+     */
+    private final InputStream mBody;
+
+    /**
+     * Create a new {@link HttpResponse}.
+     *
+     * @param code    is the HTTP status code
+     * @param headers are the response headers (names are matched case insensitively)
+     * @param body    is the response body, may be null
+     */
+    public HttpResponse(int code, Map<String, String> headers, InputStream body) {
+        mCode = code;
+        mHeaders = new HashMap<>();
+        for (Map.Entry<String, String> header : headers.entrySet()) {
+            if (header.getKey() != null) {
+                mHeaders.put(header.getKey().toLowerCase(Locale.US), header.getValue());
+            }
+        }
+        mBody = body;
+    }
+
+    /**
+     * Get the HTTP status code of the response.
+     *
+     * @return status code.
+     */
+    public int getCode() {
+        return mCode;
+    }
+
+    /**
+     * Get the value of a response header.
+     *
+     * @param name of the header, case insensitive
+     * @return header value or null if the header is not present.
+     */
+    public String getHeader(String name) {
+        return mHeaders.get(name.toLowerCase(Locale.US));
+    }
+
+    /**
+     * Get all response headers.
+     *
+     * @return headers keyed by lower case name.
+     */
+    public Map<String, String> getHeaders() {
+        return mHeaders;
+    }
+
+    /**
+     * Get the response body.
+     *
+     * @return body stream, may be null.
+     */
+    public InputStream getBody() {
+        return mBody;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (mBody == null) {
+            return;
+        }
+        try {
+            // Consume the rest of the body, otherwise the connection cannot be reused.
+            long drained = 0;
+            byte[] buffer = new byte[4096];
+            int read;
+            while (drained < MAX_DRAIN_BYTES && (read = mBody.read(buffer)) != -1) {
+                drained += read;
+            }
+        } finally {
+            mBody.close();
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.example.android.newsfeed;
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.Map;
+
+/**
+ * Performs the actual HTTP GET requests made through {@link NewsHttpClient}.
+ * <p>
+ * The default implementation is {@link UrlConnectionTransport}. Tests can install their own
+ * transport (e.g. one pointing at a local stand-in server) with
+ * {@link NewsHttpClient#setTransport(HttpTransport)}.
+ */
+
+public interface HttpTransport {
+
+    /**
+     * Perform a GET request to the given URL.
+     *
+     * @param url            to request
+     * @param requestHeaders to send with the request
+     * @return the response, which must be closed by the caller
+     * @throws IOException if the request could not be made
+     */
+    HttpResponse execute(URL url, Map<String, String> requestHeaders) throws IOException;
+}
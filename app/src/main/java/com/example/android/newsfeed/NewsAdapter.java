@@ -1,145 +1,365 @@
 package com.example.android.newsfeed;
 
-import android.app.Activity;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
 import android.support.annotation.NonNull;
-import android.support.annotation.Nullable;
-import android.text.format.DateUtils;
-import android.util.Log;
+import android.support.v7.util.DiffUtil;
+import android.support.v7.widget.RecyclerView;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
-import android.widget.ArrayAdapter;
 import android.widget.TextView;
 
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
 import java.util.ArrayList;
-import java.util.Date;
-import java.util.Locale;
-import java.util.TimeZone;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 /**
  * A custom adapter {@link NewsAdapter} knows how to create a list item layout for each newsObject
  * in the data source (a list of {@link NewsObject} objects).
  * <p>
- * These list item layouts will be provided to an adapter view like ListView
- * to be populated and displayed to the user.
+ * These list item layouts will be provided to a {@link RecyclerView} to be populated and
+ * displayed to the user. New lists are compared with the shown one on a background thread of
+ * their own, so a refresh only rebinds the rows which have actually changed - without waiting
+ * behind the network loads queued on the {@link NewsExecutor}.
  */
 
-public class NewsAdapter extends ArrayAdapter<NewsObject>{
+public class NewsAdapter extends RecyclerView.Adapter<NewsAdapter.ViewHolder> {
 
     /**
      * Tag for log messages
      */
     private static final String LOG_TAG = NewsAdapter.class.getName();
 
+    /**
+     * Time (in seconds) after which the idle diff thread is stopped
+     */
+    private static final long DIFF_KEEP_ALIVE_SECONDS = 30;
+
+    /**
+     * Single thread computing the differences of all adapters, one list at a time
+     */
+    private static final ThreadPoolExecutor sDiffExecutor = new ThreadPoolExecutor(
+            1, 1, DIFF_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+                @Override
+                public Thread newThread(@NonNull final Runnable runnable) {
+                    return new Thread(new Runnable() {
+                        @Override
+                        public void run() {
+                            Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                            runnable.run();
+                        }
+                    }, "NewsAdapter diff");
+                }
+            });
+
+    static {
+        sDiffExecutor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Handler receiving the computed differences on the main thread
+     */
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+
+    /**
+     * Formatter of the publication date labels
+     */
+    private final RelativeTimeFormatter mTimeFormatter = new RelativeTimeFormatter();
+
+    /**
+     * Listener notified when a list item is clicked
+     */
+    private final OnNewsClickListener mClickListener;
+
+    /**
+     * The shown list of {@link NewsObject}s. Never modified - changes replace the whole list.
+     */
+    private List<NewsObject> mNewsObjects = Collections.emptyList();
+
+    /**
+     * The last list passed to {@link #submitList(List)} whose differences are still being computed
+     */
+    private List<NewsObject> mPendingList;
+
+    /**
+     * Section the bind times of this adapter are recorded for in {@link PipelineMetrics}
+     */
+    private String mMetricsSection;
+
+    /**
+     * Listener for clicks on list items.
+     */
+    public interface OnNewsClickListener {
+
+        /**
+         * Called when the list item of a {@link NewsObject} has been clicked.
+         *
+         * @param newsObject of the clicked list item
+         */
+        void onNewsClick(NewsObject newsObject);
+    }
+
     /**
      * This is custom constructor.
-     * The context is used to inflate the layout file, and the list is the data we want
-     * to populate into the lists ({@link NewsObject}  details).
      *
-     * @param context The current context. Used to inflate the layout file.
-     * @param newsObjects   A List of NewsObject objects to display in a list
+     * @param clickListener notified when a list item is clicked, may be null
      */
-    public NewsAdapter(Activity context, ArrayList<NewsObject> newsObjects) {
-        // Here, we initialize the ArrayAdapter's internal storage for the context and the list.
-        // The second argument is used when the ArrayAdapter is populating a single TextView.
-        // Because this is a custom adapter for few TextViews and an ImageView, the adapter is not
-        // going to use this second argument, so it can be any value. Here, we used 0.
-        super(context, 0, newsObjects);
+    public NewsAdapter(OnNewsClickListener clickListener) {
+        mClickListener = clickListener;
+        // Item IDs are derived from the web URLs, so rows keep their views across refreshes.
+        setHasStableIds(true);
     }
 
+    /**
+     * Set the section the bind times of the list items are recorded for.
+     *
+     * @param section e.g. the list key of the shown section
+     */
+    public void setMetricsSection(String section) {
+        mMetricsSection = section;
+    }
 
     /**
-     * Provides a view for an AdapterView (ListView, GridView, etc.)
+     * Show a new list of {@link NewsObject}s. The differences to the shown list are computed
+     * in the background and only the changed rows are updated.
      *
-     * @param position    The position in the list of data that should be displayed in the
-     *                    list item view.
-     * @param convertView The recycled view to populate.
-     * @param parent      The parent ViewGroup that is used for inflation.
-     * @return The View for the position in the AdapterView.
+     * @param newsObjects to show, null to clear the list
      */
-    @NonNull
-    @Override
-    public View getView(int position, @Nullable View convertView, @NonNull ViewGroup parent) {
+    public void submitList(List<NewsObject> newsObjects) {
+        final List<NewsObject> newList = newsObjects == null
+                ? Collections.<NewsObject>emptyList()
+                : Collections.unmodifiableList(new ArrayList<>(newsObjects));
+        final List<NewsObject> oldList = mNewsObjects;
+        mPendingList = newList;
 
-        ViewHolder viewHolder;
+        // Nothing to compare - just swap the lists.
+        if (oldList.isEmpty() || newList.isEmpty()) {
+            mPendingList = null;
+            mNewsObjects = newList;
+            notifyDataSetChanged();
+            return;
+        }
 
-        // Check if the existing view is being reused, otherwise inflate the view
-        if (convertView == null) {
-            convertView = LayoutInflater.from(getContext()).inflate(
-                    R.layout.item_news, parent, false);
+        sDiffExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                final DiffUtil.DiffResult diffResult =
+                        DiffUtil.calculateDiff(new NewsDiffCallback(oldList, newList));
+                mHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (mPendingList != newList) {
+                            // A newer list has been submitted in the meantime.
+                            return;
+                        }
+                        if (mNewsObjects != oldList) {
+                            // Items have been appended or removed in the meantime, compare again.
+                            submitList(newList);
+                            return;
+                        }
+                        mPendingList = null;
+                        mNewsObjects = newList;
+                        diffResult.dispatchUpdatesTo(NewsAdapter.this);
+                    }
+                });
+            }
+        });
+    }
 
-            // Set up the ViewHolder:
-            // Find the TextViews in the item_newsObject.xml layout with corresponding IDs.
-            viewHolder = new ViewHolder();
-            viewHolder.titleTextView = convertView.findViewById(R.id.textview_listview_title);
-            viewHolder.dateTextView = convertView.findViewById(R.id.textview_listview_date);
-            viewHolder.categoryTextView = convertView.findViewById(R.id.textview_listview_category);
+    /**
+     * Add NewsObjects at the end of the list, e.g. a further page.
+     *
+     * @param newsObjects to append
+     */
+    public void appendItems(List<NewsObject> newsObjects) {
+        if (newsObjects.isEmpty()) {
+            return;
+        }
+        List<NewsObject> newList = new ArrayList<>(mNewsObjects.size() + newsObjects.size());
+        newList.addAll(mNewsObjects);
+        newList.addAll(newsObjects);
+        int start = mNewsObjects.size();
+        mNewsObjects = Collections.unmodifiableList(newList);
+        notifyItemRangeInserted(start, newsObjects.size());
+    }
 
-            // Store the holder with the view.
-            convertView.setTag(viewHolder);
+    /**
+     * Get whether a list submitted with {@link #submitList(List)} is still being compared
+     * with the shown one. Items appended or removed meanwhile would be lost.
+     *
+     * @return true until the submitted list is shown.
+     */
+    public boolean isSubmitPending() {
+        return mPendingList != null;
+    }
 
-        } else {
-            // Use the preset viewHolder
-            viewHolder = (ViewHolder) convertView.getTag();
+    /**
+     * Add NewsObjects at the top of the list, e.g. ones removed before.
+     *
+     * @param newsObjects to prepend
+     */
+    public void prependItems(List<NewsObject> newsObjects) {
+        if (newsObjects.isEmpty()) {
+            return;
+        }
+        List<NewsObject> newList = new ArrayList<>(mNewsObjects.size() + newsObjects.size());
+        newList.addAll(newsObjects);
+        newList.addAll(mNewsObjects);
+        mNewsObjects = Collections.unmodifiableList(newList);
+        notifyItemRangeInserted(0, newsObjects.size());
+    }
+
+    /**
+     * Remove NewsObjects from the top of the list.
+     *
+     * @param count number of items to remove
+     */
+    public void removeFirstItems(int count) {
+        count = Math.min(count, mNewsObjects.size());
+        if (count <= 0) {
+            return;
         }
+        mNewsObjects = Collections.unmodifiableList(
+                new ArrayList<>(mNewsObjects.subList(count, mNewsObjects.size())));
+        notifyItemRangeRemoved(0, count);
+    }
 
+    /**
+     * Remove NewsObjects from the bottom of the list.
+     *
+     * @param count number of items to remove
+     */
+    public void removeLastItems(int count) {
+        count = Math.min(count, mNewsObjects.size());
+        if (count <= 0) {
+            return;
+        }
+        int start = mNewsObjects.size() - count;
+        mNewsObjects = Collections.unmodifiableList(new ArrayList<>(mNewsObjects.subList(0, start)));
+        notifyItemRangeRemoved(start, count);
+    }
 
-        // Get the {@link NewsObject} object located at this position in the list
-        NewsObject currentNewsObject = getItem(position);
+    /**
+     * Get the {@link NewsObject} shown at the given position.
+     *
+     * @param position in the list
+     * @return NewsObject at this position.
+     */
+    public NewsObject getItem(int position) {
+        return mNewsObjects.get(position);
+    }
 
-        // Get the title from the current NewsObject object and
-        // set this text on the titleTextView
-        viewHolder.titleTextView.setText(currentNewsObject.getTitle());
+    @Override
+    public int getItemCount() {
+        return mNewsObjects.size();
+    }
 
-        // Get the date of publication and publisher from the current NewsObject object and
-        // set this text on the Info TextView
-        String dateString = currentNewsObject.getPublishedDate();
+    @Override
+    public long getItemId(int position) {
+        return mNewsObjects.get(position).getStableId();
+    }
 
-        // Change given date to a desirable time and date format.
-        // First set parsing format for given String (parsed from JSON)
-        Locale currentLocale = getContext().getResources().getConfiguration().locale;
-        SimpleDateFormat parsingDateFormat = new SimpleDateFormat(
-                "yyyy-MM-dd'T'HH:mm:ss'Z'", currentLocale);
-        parsingDateFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
+    @Override
+    public ViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
+        View itemView = LayoutInflater.from(parent.getContext()).inflate(
+                R.layout.item_news, parent, false);
+        return new ViewHolder(itemView);
+    }
 
+    /**
+     * Binds a {@link NewsObject} to a recycled (or new) list item view.
+     *
+     * @param viewHolder The ViewHolder of the list item view to populate.
+     * @param position   The position in the list of data that should be displayed in the
+     *                   list item view.
+     */
+    @Override
+    public void onBindViewHolder(ViewHolder viewHolder, int position) {
+        long startTime = System.nanoTime();
+        PipelineMetrics.beginTrace("News:bind");
         try {
-            // Try parsing date from given String
-            Date currentNewsDate = parsingDateFormat.parse(dateString);
-            // Format parsed Date object with desired format
-            // example, get time and date from locale:
-            // String formattedDate = DateFormat.getDateTimeInstance().format(currentNewsDate);
-            // or in relation to now:
-            long milliseconds = currentNewsDate.getTime();
-            long timeNow = System.currentTimeMillis();
-            String formattedDate = DateUtils.getRelativeTimeSpanString(milliseconds, timeNow, DateUtils.MINUTE_IN_MILLIS).toString();
-
-            // Set news date on dateTextView
-            viewHolder.dateTextView.setText(formattedDate);
-        }
-        catch (ParseException e) {
-            Log.e(LOG_TAG,"Parsing Date from a String failed", e);
+            // Get the {@link NewsObject} object located at this position in the list
+            NewsObject currentNewsObject = mNewsObjects.get(position);
+
+            // Get the title from the current NewsObject object and
+            // set this text on the titleTextView
+            viewHolder.titleTextView.setText(currentNewsObject.getTitle());
+
+            // Get the date of publication (parsed when the NewsObject was created) and
+            // set its label, relative to now, on the dateTextView.
+            viewHolder.dateTextView.setText(
+                    mTimeFormatter.format(currentNewsObject.getPublishedTime()));
+
+            // Get the info line (author and upper case category, built when the NewsObject
+            // was created) and set this text on the categoryTextView
+            viewHolder.categoryTextView.setText(currentNewsObject.getInfoText());
+        } finally {
+            PipelineMetrics.endTrace();
         }
+        PipelineMetrics.recordBind(mMetricsSection, System.nanoTime() - startTime);
+    }
 
-        // Get the category from the current NewsObject object and
-        // set this text on the categoryTextView
-        if (currentNewsObject.getAuthor() == null || currentNewsObject.getAuthor().isEmpty()) {
-            viewHolder.categoryTextView.setText(currentNewsObject.getCategory().toUpperCase());
-        } else {
-            StringBuilder infoText = new StringBuilder();
-            infoText.append(currentNewsObject.getAuthor()).append("  @  ")
-                    .append(currentNewsObject.getCategory().toUpperCase());
-            viewHolder.categoryTextView.setText(infoText);
+    class ViewHolder extends RecyclerView.ViewHolder implements View.OnClickListener {
+        final TextView titleTextView;
+        final TextView dateTextView;
+        final TextView categoryTextView;
+
+        ViewHolder(View itemView) {
+            super(itemView);
+            // Find the TextViews in the item_news.xml layout with corresponding IDs.
+            titleTextView = itemView.findViewById(R.id.textview_listview_title);
+            dateTextView = itemView.findViewById(R.id.textview_listview_date);
+            categoryTextView = itemView.findViewById(R.id.textview_listview_category);
+            itemView.setOnClickListener(this);
         }
 
-        // Return the whole list item layout so that it can be shown in the ListView
-        return convertView;
+        @Override
+        public void onClick(View view) {
+            int position = getAdapterPosition();
+            if (mClickListener != null && position != RecyclerView.NO_POSITION) {
+                mClickListener.onNewsClick(mNewsObjects.get(position));
+            }
+        }
     }
 
-    static class ViewHolder {
-        TextView titleTextView;
-        TextView dateTextView;
-        TextView categoryTextView;
+    /**
+     * Compares two lists of {@link NewsObject}s, matching items by their web URL.
+     */
+    private static final class NewsDiffCallback extends DiffUtil.Callback {
+        private final List<NewsObject> mOldList;
+        private final List<NewsObject> mNewList;
+
+        NewsDiffCallback(List<NewsObject> oldList, List<NewsObject> newList) {
+            mOldList = oldList;
+            mNewList = newList;
+        }
+
+        @Override
+        public int getOldListSize() {
+            return mOldList.size();
+        }
+
+        @Override
+        public int getNewListSize() {
+            return mNewList.size();
+        }
+
+        @Override
+        public boolean areItemsTheSame(int oldItemPosition, int newItemPosition) {
+            String oldUrl = mOldList.get(oldItemPosition).getNewsUrl();
+            return oldUrl != null && oldUrl.equals(mNewList.get(newItemPosition).getNewsUrl());
+        }
+
+        @Override
+        public boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
+            return mOldList.get(oldItemPosition).equals(mNewList.get(newItemPosition));
+        }
     }
 }
@@ -0,0 +1,166 @@
+package com.example.android.newsfeed;
+
+import android.support.annotation.VisibleForTesting;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Loads the newest NewsObjects of several sections with one combined Guardian request
+ * (section=world|business) and hands every section its own share of the results.
+ * <p>
+ * The first section asking for news performs the request; sections asking while it is
+ * in flight, or shortly after, wait for and reuse the same result. A failed (or cancelled)
+ * request is only shared with the sections which waited for it - the next section asking
+ * starts a new one. A section which did not get a full page out of the combined results is
+ * loaded with its own request instead.
+ * <p>
+ * Only sections requested by section are batched (see {@link SectionRegistry}). The combined
+ * page holds the 200 newest articles, days of world and business news, so the slower section
+ * still gets a full page out of it. Loading all four tabs from scratch takes three
+ * requests: technology and science by tag, world and business combined
+ * (NewsFeedBenchmarkTest.allTabs_requestCount measures it).
+ */
+
+public final class NewsBatch {
+
+    /**
+     * Tag for log messages
+     */
+    private static final String LOG_TAG = NewsBatch.class.getSimpleName();
+
+    /**
+     * How long (in milliseconds) a combined result is handed out to sections asking for news
+     */
+    private static final long BATCH_MAX_AGE = 30 * 1000;
+
+    /**
+     * The last combined request, its sections and its start time. Guarded by NewsBatch.class.
+     */
+    private static FutureTask<Map<String, List<NewsObject>>> sBatchTask;
+    private static String[] sBatchSections;
+    private static long sBatchStartTime;
+
+    /**
+     * Create a private constructor because no one should ever create a {@link NewsBatch} object.
+     */
+    private NewsBatch() {
+    }
+
+    /**
+     * Return the newest NewsObjects of a single section, loaded together with all the
+     * other sections. Must not be called on the main thread.
+     *
+     * @param sections    all sections to load together
+     * @param sectionName section to return the NewsObjects of
+     * @param sectionUrl  request URL used if this section has to be loaded on its own
+     * @return list of NewsObjects, or null if loading failed
+     */
+    public static List<NewsObject> fetchSection(String[] sections, String sectionName,
+                                                String sectionUrl) {
+        FutureTask<Map<String, List<NewsObject>>> batchTask;
+        boolean startBatch = false;
+        synchronized (NewsBatch.class) {
+            long now = System.currentTimeMillis();
+            if (sBatchTask == null
+                    || !Arrays.equals(sBatchSections, sections)
+                    || now - sBatchStartTime > BATCH_MAX_AGE) {
+                sBatchTask = createBatchTask(sections);
+                sBatchSections = sections.clone();
+                sBatchStartTime = now;
+                startBatch = true;
+            }
+            batchTask = sBatchTask;
+        }
+
+        // The caller which created the task runs it on its own (background) thread.
+        if (startBatch) {
+            batchTask.run();
+        }
+
+        Map<String, List<NewsObject>> newsBySection;
+        try {
+            newsBySection = batchTask.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            if (startBatch) {
+                forgetBatchTask(batchTask);
+            }
+            return null;
+        } catch (ExecutionException e) {
+            Log.e(LOG_TAG, "Problem loading the combined sections", e);
+            forgetBatchTask(batchTask);
+            return null;
+        }
+
+        // The combined request failed - don't retry every section on its own.
+        if (newsBySection == null) {
+            forgetBatchTask(batchTask);
+            return null;
+        }
+
+        List<NewsObject> sectionNews = newsBySection.get(sectionName);
+        if (sectionNews == null || sectionNews.size() < FragmentUtils.PAGE_SIZE) {
+            // Other sections filled the combined page, load this one separately.
+            Log.d(LOG_TAG, "Loading section separately: " + sectionName);
+            return QueryUtils.fetchNewsObjectData(sectionUrl);
+        }
+        return new ArrayList<>(sectionNews.subList(0, FragmentUtils.PAGE_SIZE));
+    }
+
+    /**
+     * Forget a failed combined request, unless a newer one has replaced it already, so the
+     * next section asking for news makes a new combined request.
+     */
+    private static synchronized void forgetBatchTask(
+            FutureTask<Map<String, List<NewsObject>>> batchTask) {
+        if (sBatchTask == batchTask) {
+            sBatchTask = null;
+            sBatchSections = null;
+        }
+    }
+
+    /**
+     * Forget the last combined result, so the next section asking for news makes a new
+     * combined request.
+     */
+    @VisibleForTesting
+    public static synchronized void clear() {
+        sBatchTask = null;
+        sBatchSections = null;
+    }
+
+    /**
+     * Create the task performing the combined request and splitting its results by section ID.
+     */
+    private static FutureTask<Map<String, List<NewsObject>>> createBatchTask(final String[] sections) {
+        return new FutureTask<>(new Callable<Map<String, List<NewsObject>>>() {
+            @Override
+            public Map<String, List<NewsObject>> call() {
+                List<NewsObject> newsObjects =
+                        QueryUtils.fetchNewsObjectData(FragmentUtils.buildBatchRequestUrl(sections));
+                if (newsObjects == null) {
+                    return null;
+                }
+
+                Map<String, List<NewsObject>> newsBySection = new HashMap<>();
+                for (NewsObject newsObject : newsObjects) {
+                    List<NewsObject> sectionNews = newsBySection.get(newsObject.getSectionId());
+                    if (sectionNews == null) {
+                        sectionNews = new ArrayList<>();
+                        newsBySection.put(newsObject.getSectionId(), sectionNews);
+                    }
+                    sectionNews.add(newsObject);
+                }
+                return newsBySection;
+            }
+        });
+    }
+}
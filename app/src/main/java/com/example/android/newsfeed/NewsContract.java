@@ -0,0 +1,110 @@
+package com.example.android.newsfeed;
+
+import android.provider.BaseColumns;
+
+/**
+ * API Contract for the NewsFeed app database, which stores the NewsObjects of all sections.
+ */
+
+public final class NewsContract {
+
+    /**
+     * Create a private constructor because no one should ever create a {@link NewsContract} object.
+     */
+    private NewsContract() {
+    }
+
+    /**
+     * Inner class that defines constant values for the articles database table.
+     * Each entry in the table represents a single {@link NewsObject} shown in a list.
+     */
+    public static final class ArticleEntry implements BaseColumns {
+
+        /**
+         * Name of database table for articles
+         */
+        public static final String TABLE_NAME = "articles";
+
+        /**
+         * Key of the list the article is shown in (e.g. the section name "technology").
+         * Type: TEXT
+         */
+        public static final String COLUMN_LIST_KEY = "list_key";
+
+        /**
+         * URL of the article, unique within a list.
+         * Type: TEXT
+         */
+        public static final String COLUMN_WEB_URL = "web_url";
+
+        /**
+         * Title of the article.
+         * Type: TEXT
+         */
+        public static final String COLUMN_TITLE = "title";
+
+        /**
+         * Section ID of the article, as used in API requests (e.g. "technology").
+         * Type: TEXT
+         */
+        public static final String COLUMN_SECTION_ID = "section_id";
+
+        /**
+         * Section name of the article, shown as its category.
+         * Type: TEXT
+         */
+        public static final String COLUMN_SECTION_NAME = "section_name";
+
+        /**
+         * Publication date of the article as received from the API ("yyyy-MM-dd'T'HH:mm:ss'Z'").
+         * Type: TEXT
+         */
+        public static final String COLUMN_PUBLISHED_DATE = "published_date";
+
+        /**
+         * Publication date of the article in milliseconds since the epoch, used for sorting.
+         * Type: INTEGER
+         */
+        public static final String COLUMN_PUBLISHED_TIME = "published_time";
+
+        /**
+         * Comma separated contributors of the article, or null.
+         * Type: TEXT
+         */
+        public static final String COLUMN_AUTHOR = "author";
+
+        /**
+         * Time the article was last stored, in milliseconds since the epoch.
+         * Type: INTEGER
+         */
+        public static final String COLUMN_STORED_TIME = "stored_time";
+
+        /**
+         * Name of the index used to read the newest articles of a list
+         */
+        public static final String INDEX_LIST_TIME = "articles_list_time";
+    }
+
+    /**
+     * Inner class that defines constant values for the full-text index of the articles table.
+     * It is an FTS4 table using the articles table as its content, so only the index itself is
+     * stored. Its docid is the {@link ArticleEntry#_ID} of the indexed article.
+     */
+    public static final class ArticleSearchEntry {
+
+        /**
+         * Name of the full-text index table
+         */
+        public static final String TABLE_NAME = "articles_fts";
+
+        /**
+         * Columns of the articles table which are indexed, in index column order.
+         * Matches in earlier columns rank higher (see NewsStore#search).
+         */
+        public static final String[] INDEXED_COLUMNS = {
+                ArticleEntry.COLUMN_TITLE,
+                ArticleEntry.COLUMN_AUTHOR,
+                ArticleEntry.COLUMN_SECTION_NAME
+        };
+    }
+}
@@ -0,0 +1,144 @@
+package com.example.android.newsfeed;
+
+import android.content.Context;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.text.TextUtils;
+
+import com.example.android.newsfeed.NewsContract.ArticleEntry;
+import com.example.android.newsfeed.NewsContract.ArticleSearchEntry;
+
+/**
+ * Database helper for NewsFeed app. Manages database creation and version management.
+ */
+
+public class NewsDbHelper extends SQLiteOpenHelper {
+
+    /**
+     * Name of the database file
+     */
+    private static final String DATABASE_NAME = "news.db";
+
+    /**
+     * Database version. If you change the database schema, you must increment the database version.
+     */
+    private static final int DATABASE_VERSION = 2;
+
+    /**
+     * The only instance, shared by all threads (SQLiteDatabase serializes access itself)
+     */
+    private static NewsDbHelper sInstance;
+
+    /**
+     * Constructs a new instance of {@link NewsDbHelper}.
+     *
+     * @param context of the app
+     */
+    private NewsDbHelper(Context context) {
+        super(context, DATABASE_NAME, null, DATABASE_VERSION);
+    }
+
+    /**
+     * Get the shared {@link NewsDbHelper}.
+     *
+     * @param context any context, only its application context is kept
+     */
+    public static synchronized NewsDbHelper getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new NewsDbHelper(context.getApplicationContext());
+        }
+        return sInstance;
+    }
+
+    /**
+     * This is called when a connection to the database is being configured.
+     */
+    @Override
+    public void onConfigure(SQLiteDatabase db) {
+        super.onConfigure(db);
+        // Storing an article again REPLACEs its row, which only fires the delete trigger
+        // keeping the full-text index in sync when recursive triggers are enabled.
+        db.execSQL("PRAGMA recursive_triggers = ON;");
+    }
+
+    /**
+     * This is called when the database is created for the first time.
+     */
+    @Override
+    public void onCreate(SQLiteDatabase db) {
+        // Create a String that contains the SQL statement to create the articles table.
+        // An article is stored once per list, so storing it again replaces the old row.
+        String SQL_CREATE_ARTICLES_TABLE = "CREATE TABLE " + ArticleEntry.TABLE_NAME + " ("
+                + ArticleEntry._ID + " INTEGER PRIMARY KEY AUTOINCREMENT, "
+                + ArticleEntry.COLUMN_LIST_KEY + " TEXT NOT NULL, "
+                + ArticleEntry.COLUMN_WEB_URL + " TEXT NOT NULL, "
+                + ArticleEntry.COLUMN_TITLE + " TEXT, "
+                + ArticleEntry.COLUMN_SECTION_ID + " TEXT, "
+                + ArticleEntry.COLUMN_SECTION_NAME + " TEXT, "
+                + ArticleEntry.COLUMN_PUBLISHED_DATE + " TEXT, "
+                + ArticleEntry.COLUMN_PUBLISHED_TIME + " INTEGER NOT NULL DEFAULT 0, "
+                + ArticleEntry.COLUMN_AUTHOR + " TEXT, "
+                + ArticleEntry.COLUMN_STORED_TIME + " INTEGER NOT NULL DEFAULT 0, "
+                + "UNIQUE (" + ArticleEntry.COLUMN_LIST_KEY + ", "
+                + ArticleEntry.COLUMN_WEB_URL + ") ON CONFLICT REPLACE);";
+
+        // Lists are always read newest first, a window at a time - this index covers the
+        // WHERE and ORDER BY of those reads, so no read has to sort the whole table.
+        String SQL_CREATE_LIST_TIME_INDEX = "CREATE INDEX " + ArticleEntry.INDEX_LIST_TIME
+                + " ON " + ArticleEntry.TABLE_NAME + " ("
+                + ArticleEntry.COLUMN_LIST_KEY + ", "
+                + ArticleEntry.COLUMN_PUBLISHED_TIME + " DESC);";
+
+        // Execute the SQL statements
+        db.execSQL(SQL_CREATE_ARTICLES_TABLE);
+        db.execSQL(SQL_CREATE_LIST_TIME_INDEX);
+
+        createSearchIndex(db);
+    }
+
+    /**
+     * This is called when the database needs to be upgraded.
+     */
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        if (oldVersion < 2) {
+            // Version 2 adds the full-text index, which is filled with the stored articles.
+            createSearchIndex(db);
+            db.execSQL("INSERT INTO " + ArticleSearchEntry.TABLE_NAME + " (docid, "
+                    + TextUtils.join(", ", ArticleSearchEntry.INDEXED_COLUMNS) + ") SELECT "
+                    + ArticleEntry._ID + ", "
+                    + TextUtils.join(", ", ArticleSearchEntry.INDEXED_COLUMNS) + " FROM "
+                    + ArticleEntry.TABLE_NAME + ";");
+        }
+    }
+
+    /**
+     * Create the full-text index of the articles table, and the triggers which update it
+     * whenever an article is stored or deleted - articles are indexed as they are stored,
+     * in the same transaction.
+     */
+    private static void createSearchIndex(SQLiteDatabase db) {
+        String columns = TextUtils.join(", ", ArticleSearchEntry.INDEXED_COLUMNS);
+        StringBuilder newValues = new StringBuilder();
+        for (String column : ArticleSearchEntry.INDEXED_COLUMNS) {
+            newValues.append(", new.").append(column);
+        }
+
+        // External content table: the index refers to the rows of the articles table.
+        db.execSQL("CREATE VIRTUAL TABLE " + ArticleSearchEntry.TABLE_NAME
+                + " USING fts4(content=\"" + ArticleEntry.TABLE_NAME + "\", " + columns + ");");
+
+        db.execSQL("CREATE TRIGGER articles_fts_before_delete BEFORE DELETE ON "
+                + ArticleEntry.TABLE_NAME + " BEGIN DELETE FROM " + ArticleSearchEntry.TABLE_NAME
+                + " WHERE docid = old." + ArticleEntry._ID + "; END;");
+        db.execSQL("CREATE TRIGGER articles_fts_before_update BEFORE UPDATE ON "
+                + ArticleEntry.TABLE_NAME + " BEGIN DELETE FROM " + ArticleSearchEntry.TABLE_NAME
+                + " WHERE docid = old." + ArticleEntry._ID + "; END;");
+        db.execSQL("CREATE TRIGGER articles_fts_after_update AFTER UPDATE ON "
+                + ArticleEntry.TABLE_NAME + " BEGIN INSERT INTO " + ArticleSearchEntry.TABLE_NAME
+                + " (docid, " + columns + ") VALUES (new." + ArticleEntry._ID + newValues + "); END;");
+        db.execSQL("CREATE TRIGGER articles_fts_after_insert AFTER INSERT ON "
+                + ArticleEntry.TABLE_NAME + " BEGIN INSERT INTO " + ArticleSearchEntry.TABLE_NAME
+                + " (docid, " + columns + ") VALUES (new." + ArticleEntry._ID + newValues + "); END;");
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.android.newsfeed;
+
+import android.os.Process;
+import android.support.annotation.NonNull;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bounded thread pool on which all NewsObjects are loaded in the background.
+ * <p>
+ * Section loads run concurrently, up to {@link #getParallelism()} at a time; further loads
+ * wait in a queue. Idle threads are stopped after a while, so the pool costs nothing when
+ * no news are being loaded.
+ */
+
+public final class NewsExecutor {
+
+    /**
+     * Default number of loads running at the same time
+     */
+    public static final int DEFAULT_PARALLELISM = 4;
+
+    /**
+     * Time (in seconds) after which idle threads are stopped
+     */
+    private static final long KEEP_ALIVE_SECONDS = 30;
+
+    /**
+     * Number used in the name of the next thread
+     */
+    private static final AtomicInteger sThreadNumber = new AtomicInteger(1);
+
+    /**
+     * The shared pool
+     */
+    private static final ThreadPoolExecutor sExecutor = new ThreadPoolExecutor(
+            DEFAULT_PARALLELISM, DEFAULT_PARALLELISM, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+                @Override
+                public Thread newThread(@NonNull final Runnable runnable) {
+                    return new Thread(new Runnable() {
+                        @Override
+                        public void run() {
+                            // Keep loading from competing with the UI thread.
+                            Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                            runnable.run();
+                        }
+                    }, "NewsExecutor #" + sThreadNumber.getAndIncrement());
+                }
+            });
+
+    static {
+        sExecutor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Create a private constructor because no one should ever create a {@link NewsExecutor} object.
+     */
+    private NewsExecutor() {
+    }
+
+    /**
+     * Get the shared executor.
+     *
+     * @return executor service running background loads.
+     */
+    public static ExecutorService get() {
+        return sExecutor;
+    }
+
+    /**
+     * Get the maximum number of loads running at the same time.
+     *
+     * @return parallelism cap.
+     */
+    public static int getParallelism() {
+        return sExecutor.getMaximumPoolSize();
+    }
+
+    /**
+     * Change the maximum number of loads running at the same time.
+     *
+     * @param parallelism new cap, at least 1
+     */
+    public static synchronized void setParallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be at least 1: " + parallelism);
+        }
+        // Core size may never exceed maximum size, so change them in the matching order.
+        if (parallelism > sExecutor.getMaximumPoolSize()) {
+            sExecutor.setMaximumPoolSize(parallelism);
+            sExecutor.setCorePoolSize(parallelism);
+        } else {
+            sExecutor.setCorePoolSize(parallelism);
+            sExecutor.setMaximumPoolSize(parallelism);
+        }
+    }
+}
@@ -1,9 +1,21 @@
 package com.example.android.newsfeed;
 
+import android.app.SearchManager;
+import android.content.ComponentName;
+import android.content.Context;
+import android.content.Intent;
 import android.os.Bundle;
 import android.support.design.widget.TabLayout;
 import android.support.v4.view.ViewPager;
 import android.support.v7.app.AppCompatActivity;
+import android.support.v7.widget.RecyclerView;
+import android.support.v7.widget.SearchView;
+import android.util.Log;
+import android.view.Menu;
+import android.view.MenuItem;
+
+import java.io.FileDescriptor;
+import java.io.PrintWriter;
 
 /**
  * Main app Activity, which contains ViewPager populated by Fragments. Each of them contains list
@@ -13,12 +25,30 @@ import android.support.v7.app.AppCompatActivity;
 
 public class NewsFeedActivity extends AppCompatActivity {
 
+    /**
+     * Pool of list item views shared by the lists of all Fragments,
+     * so swiping to another tab reuses the item views of the previous one
+     */
+    private final RecyclerView.RecycledViewPool mNewsViewPool = new RecyclerView.RecycledViewPool();
+
+    /**
+     * Tag for log messages
+     */
+    private static final String LOG_TAG = NewsFeedActivity.class.getSimpleName();
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_newsfeed);
 
+        if (savedInstanceState == null) {
+            PipelineMetrics.startSession();
+        }
+
+        RequestScheduler.getInstance().init(this);
+        // Keep the stored news of all sections fresh, so they can be shown right away.
+        NewsSync.schedule(this);
+
 
         // VIEWPAGER
         // Find the view pager that will allow the user to swipe between fragments
@@ -28,13 +58,108 @@ public class NewsFeedActivity extends AppCompatActivity {
         // Set the adapter onto the view pager
         viewPager.setAdapter(adapter);
 
+        // Start loading the tab the user is swiping towards before it settles.
+        viewPager.addOnPageChangeListener(new SwipePrefetchListener(viewPager, adapter));
+
         // TABLAYOUT
         // Give the TabLayout the ViewPager
         TabLayout tabLayout = (TabLayout) findViewById(R.id.sliding_tabs);
         tabLayout.setupWithViewPager(viewPager);
 
-        // Set off screen page limit
-        viewPager.setOffscreenPageLimit(CategoryFragmentPagerAdapter.NUM_ITEMS - 1);
+        // Keep the default off screen page limit: only the visible tab and its neighbours
+        // exist and load news, however many sections there are.
+    }
+
+    @Override
+    public boolean onCreateOptionsMenu(Menu menu) {
+        getMenuInflater().inflate(R.menu.menu_newsfeed, menu);
+
+        // Searches are handled by SearchActivity.
+        SearchManager searchManager = (SearchManager) getSystemService(Context.SEARCH_SERVICE);
+        SearchView searchView = (SearchView) menu.findItem(R.id.action_search).getActionView();
+        searchView.setSearchableInfo(searchManager.getSearchableInfo(
+                new ComponentName(this, SearchActivity.class)));
+
+        // The load timings are only of interest while developing.
+        menu.findItem(R.id.action_pipeline_metrics).setVisible(BuildConfig.DEBUG);
+        return true;
+    }
+
+    @Override
+    public boolean onOptionsItemSelected(MenuItem item) {
+        if (item.getItemId() == R.id.action_pipeline_metrics) {
+            startActivity(new Intent(this, PipelineMetricsActivity.class));
+            return true;
+        }
+        return super.onOptionsItemSelected(item);
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+        // Give back memory of lists the user may not come back to.
+        SectionCache.onTrimMemory(level);
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        if (isFinishing()) {
+            Log.i(LOG_TAG, RequestScheduler.getInstance().getReport());
+            Log.i(LOG_TAG, PipelineMetrics.getReport());
+        }
+    }
+
+    /**
+     * Add the load timings to the state dumped by
+     * "adb shell dumpsys activity com.example.android.newsfeed".
+     */
+    @Override
+    public void dump(String prefix, FileDescriptor fd, PrintWriter writer, String[] args) {
+        super.dump(prefix, fd, writer, args);
+        writer.print(prefix);
+        writer.println("Pipeline metrics:");
+        for (String line : PipelineMetrics.dump().split("\n")) {
+            writer.print(prefix);
+            writer.print("  ");
+            writer.println(line);
+        }
+    }
+
+    /**
+     * Get the pool of list item views shared by the lists of all Fragments.
+     *
+     * @return shared view pool.
+     */
+    public RecyclerView.RecycledViewPool getNewsViewPool() {
+        return mNewsViewPool;
+    }
+
+    /**
+     * Predicts the tab the user is swiping to and asks its fragment to start loading,
+     * so the news are (nearly) there when the swipe ends.
+     */
+    private static class SwipePrefetchListener extends ViewPager.SimpleOnPageChangeListener {
+        private final ViewPager mViewPager;
+        private final CategoryFragmentPagerAdapter mAdapter;
+
+        SwipePrefetchListener(ViewPager viewPager, CategoryFragmentPagerAdapter adapter) {
+            mViewPager = viewPager;
+            mAdapter = adapter;
+        }
 
+        @Override
+        public void onPageScrolled(int position, float positionOffset, int positionOffsetPixels) {
+            if (positionOffset == 0) {
+                return;
+            }
+            // Pages position and position + 1 are both visible: the one which is not
+            // the current item is the one being swiped to.
+            int target = position == mViewPager.getCurrentItem() ? position + 1 : position;
+            SectionFragment fragment = mAdapter.getFragment(target);
+            if (fragment != null) {
+                fragment.prefetch();
+            }
+        }
     }
 }
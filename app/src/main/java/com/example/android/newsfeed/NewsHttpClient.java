@@ -0,0 +1,295 @@
+package com.example.android.newsfeed;
+
+import android.support.annotation.VisibleForTesting;
+import android.util.Log;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.TimeZone;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Single HTTP client shared by all requests to the Guardian API.
+ * <p>
+ * Every section load goes through the same {@link HttpTransport}, so keep-alive connections
+ * opened by one request are reused by the next one instead of paying a new TCP and TLS
+ * handshake each time. Responses are requested gzip compressed and decompressed here.
+ * <p>
+ * Failed requests (connection problems, 429 and 5xx responses) are retried a few times after
+ * a growing, randomized delay, or after the delay the server asked for with Retry-After.
+ * Every endpoint has a {@link CircuitBreaker}, so an endpoint which keeps failing is not
+ * called at all for a while. Every attempt waits for its turn in the {@link RequestScheduler},
+ * which keeps the requests within the call limits of the API key.
+ */
+
+public final class NewsHttpClient {
+
+    /**
+     * Maximum number of idle keep-alive connections kept by the platform per host
+     */
+    private static final int MAX_IDLE_CONNECTIONS = 5;
+
+    /**
+     * Tag for log messages
+     */
+    private static final String LOG_TAG = NewsHttpClient.class.getSimpleName();
+
+    /**
+     * Maximum number of attempts per request
+     */
+    private static final int MAX_ATTEMPTS = 3;
+
+    /**
+     * Delay (in milliseconds) before the first retry, doubled for each further retry
+     */
+    private static final long BASE_RETRY_DELAY = 500;
+
+    /**
+     * Longest delay (in milliseconds) waited before a retry. If the server asks for a longer
+     * one with Retry-After, the request is not retried but the endpoint's circuit is opened.
+     */
+    private static final long MAX_RETRY_DELAY = 8 * 1000;
+
+    /**
+     * The shared instance
+     */
+    private static final NewsHttpClient sInstance = new NewsHttpClient();
+
+    /**
+     * Transport used to perform the requests
+     */
+    private volatile HttpTransport mTransport = new UrlConnectionTransport();
+
+    /**
+     * Circuit breakers by endpoint (host and path). Guarded by this map.
+     */
+    private final Map<String, CircuitBreaker> mCircuitBreakers = new HashMap<>();
+
+    /**
+     * Source of the random part of the retry delays
+     */
+    private final Random mRandom = new Random();
+
+    private NewsHttpClient() {
+        // HttpURLConnection reads these once, when the connection pool is first used.
+        System.setProperty("http.keepAlive", "true");
+        System.setProperty("http.maxConnections", String.valueOf(MAX_IDLE_CONNECTIONS));
+    }
+
+    /**
+     * Get the shared {@link NewsHttpClient}.
+     *
+     * @return client instance.
+     */
+    public static NewsHttpClient getInstance() {
+        return sInstance;
+    }
+
+    /**
+     * Replace the transport used for all requests, e.g. with one talking to a local server.
+     *
+     * @param transport to use from now on
+     */
+    @VisibleForTesting
+    public void setTransport(HttpTransport transport) {
+        mTransport = transport;
+    }
+
+    /**
+     * Forget the state of all circuit breakers, e.g. after the transport has been replaced.
+     */
+    @VisibleForTesting
+    public void resetCircuitBreakers() {
+        synchronized (mCircuitBreakers) {
+            mCircuitBreakers.clear();
+        }
+    }
+
+    /**
+     * Perform a GET request to the given URL, retrying it if it fails for a reason which may
+     * go away. The returned response must be closed, which releases the connection for reuse.
+     * Must not be called on the main thread, as it waits between the attempts.
+     *
+     * @param url            to request
+     * @param requestHeaders additional headers to send, may be empty
+     * @return the response with an already decompressed body, which may still be an error
+     * response if all attempts failed
+     * @throws CircuitOpenException if the endpoint is not called at the moment
+     * @throws IOException          if the request could not be made
+     */
+    public HttpResponse get(URL url, Map<String, String> requestHeaders) throws IOException {
+        String endpoint = url.getHost() + url.getPath();
+        CircuitBreaker circuitBreaker = getCircuitBreaker(endpoint);
+
+        for (int attempt = 1; ; attempt++) {
+            if (!circuitBreaker.allowRequest()) {
+                throw new CircuitOpenException(endpoint, circuitBreaker.getRemainingOpenTime());
+            }
+            // Every attempt counts against the call limits of the API key.
+            try {
+                RequestScheduler.getInstance().acquire(url);
+            } catch (IOException e) {
+                circuitBreaker.recordCancel();
+                throw e;
+            }
+
+            HttpResponse response;
+            try {
+                response = execute(url, requestHeaders);
+            } catch (IOException e) {
+                if (Thread.currentThread().isInterrupted()) {
+                    // The load has been cancelled - that says nothing about the endpoint.
+                    circuitBreaker.recordCancel();
+                    throw e;
+                }
+                circuitBreaker.recordFailure(0);
+                if (attempt == MAX_ATTEMPTS) {
+                    throw e;
+                }
+                Log.w(LOG_TAG, "Attempt " + attempt + " failed: " + e);
+                sleep(getRetryDelay(attempt));
+                continue;
+            }
+
+            if (!isRetryable(response.getCode())) {
+                circuitBreaker.recordSuccess();
+                return response;
+            }
+
+            long retryAfter = parseRetryAfter(response.getHeader("Retry-After"),
+                    System.currentTimeMillis());
+            if (attempt == MAX_ATTEMPTS || retryAfter > MAX_RETRY_DELAY) {
+                // Give up - and don't let anyone call the endpoint before the server allows it.
+                circuitBreaker.recordFailure(retryAfter > MAX_RETRY_DELAY ? retryAfter : 0);
+                return response;
+            }
+            circuitBreaker.recordFailure(0);
+            Log.w(LOG_TAG, "Attempt " + attempt + " failed with code " + response.getCode());
+            response.close();
+            sleep(Math.max(retryAfter, getRetryDelay(attempt)));
+        }
+    }
+
+    /**
+     * Perform a single GET request to the given URL.
+     */
+    private HttpResponse execute(URL url, Map<String, String> requestHeaders) throws IOException {
+        Map<String, String> headers = new HashMap<>(requestHeaders);
+        // Asking for gzip explicitly turns off transparent decompression of HttpURLConnection,
+        // so the body is decompressed below.
+        headers.put("Accept-Encoding", "gzip");
+
+        HttpResponse response = mTransport.execute(url, headers);
+        if (response.getBody() != null) {
+            // Count the bytes as they come over the wire, before decompression.
+            response = new HttpResponse(response.getCode(), response.getHeaders(),
+                    new CountingInputStream(response.getBody()));
+        }
+        if (response.getCode() == HttpURLConnection.HTTP_OK
+                && response.getBody() != null
+                && "gzip".equalsIgnoreCase(response.getHeader("Content-Encoding"))) {
+            try {
+                return new HttpResponse(response.getCode(), response.getHeaders(),
+                        new GZIPInputStream(response.getBody()));
+            } catch (IOException e) {
+                response.close();
+                throw e;
+            }
+        }
+        return response;
+    }
+
+    /**
+     * Get the circuit breaker of an endpoint, creating it on first use.
+     */
+    private CircuitBreaker getCircuitBreaker(String endpoint) {
+        synchronized (mCircuitBreakers) {
+            CircuitBreaker circuitBreaker = mCircuitBreakers.get(endpoint);
+            if (circuitBreaker == null) {
+                circuitBreaker = new CircuitBreaker();
+                mCircuitBreakers.put(endpoint, circuitBreaker);
+            }
+            return circuitBreaker;
+        }
+    }
+
+    /**
+     * Return the delay (in milliseconds) before the retry following the given attempt: a random
+     * time up to an exponentially growing bound, so clients failing at the same time don't all
+     * retry at the same time again.
+     */
+    private long getRetryDelay(int attempt) {
+        long bound = Math.min(MAX_RETRY_DELAY, BASE_RETRY_DELAY << (attempt - 1));
+        synchronized (mRandom) {
+            return bound / 2 + (long) (mRandom.nextDouble() * bound / 2);
+        }
+    }
+
+    /**
+     * Wait before the next attempt.
+     *
+     * @throws InterruptedIOException if the waiting thread is interrupted (the load is cancelled)
+     */
+    private static void sleep(long millis) throws InterruptedIOException {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting to retry");
+        }
+    }
+
+    /**
+     * Return whether a request answered with the given status code may succeed if retried:
+     * too many requests (429) and temporary server problems (500, 502, 503, 504).
+     */
+    static boolean isRetryable(int code) {
+        switch (code) {
+            case 429:
+            case HttpURLConnection.HTTP_INTERNAL_ERROR:
+            case HttpURLConnection.HTTP_BAD_GATEWAY:
+            case HttpURLConnection.HTTP_UNAVAILABLE:
+            case HttpURLConnection.HTTP_GATEWAY_TIMEOUT:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Parse the value of a Retry-After header, which is either a number of seconds or an
+     * HTTP date.
+     *
+     * @param value of the header, may be null
+     * @param now   current time in milliseconds since the epoch
+     * @return time to wait in milliseconds, 0 if there is none (or the value is invalid)
+     */
+    static long parseRetryAfter(String value, long now) {
+        if (value == null) {
+            return 0;
+        }
+        value = value.trim();
+        try {
+            return Math.max(0, Long.parseLong(value) * 1000);
+        } catch (NumberFormatException e) {
+            // Not a number of seconds - try a date.
+        }
+        SimpleDateFormat httpDateFormat =
+                new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss zzz", Locale.US);
+        httpDateFormat.setTimeZone(TimeZone.getTimeZone("GMT"));
+        try {
+            return Math.max(0, httpDateFormat.parse(value).getTime() - now);
+        } catch (ParseException e) {
+            Log.w(LOG_TAG, "Invalid Retry-After: " + value);
+            return 0;
+        }
+    }
+}
@@ -1,27 +1,82 @@
 package com.example.android.newsfeed;
 
-import android.content.AsyncTaskLoader;
 import android.content.Context;
+import android.content.Loader;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
 
 import java.util.List;
+import java.util.concurrent.Future;
 
 /**
- * Loads a list of {@link NewsObject}s by using an {@link AsyncTaskLoader} to perform the
- * network request to the given URL.
+ * Loads a list of {@link NewsObject}s by performing the network request to the given URL
+ * on the shared {@link NewsExecutor}, so several sections load at the same time.
+ * <p>
+ * The first window of news stored in {@link NewsStore} is delivered first, so the list can be
+ * shown immediately (also without Internet connection). The network request then revalidates them
+ * and a new result is only delivered if it differs from the one already shown. Results which
+ * have just been stored, e.g. by the background {@link NewsSync}, are not revalidated at all.
+ * <p>
+ * Delivered lists are kept in the {@link SectionCache}, so a loader recreated together with
+ * its fragment shows them again right away. When a request fails, the last successful response
+ * of the URL is shown if there is nothing else to show, but it is reported as a failure and
+ * neither stored nor cached, so it is revalidated on the next start.
  */
 
-public class NewsLoader extends AsyncTaskLoader<List<NewsObject>> {
+public class NewsLoader extends Loader<List<NewsObject>> {
 
     /**
      * Tag for log messages
      */
     private static final String LOG_TAG = NewsLoader.class.getName();
 
+    /**
+     * Handler delivering results on the main thread
+     */
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+
     /**
      * Query URL
      */
     private String mStringUrl;
 
+    /**
+     * Name of the section loaded, if it can be loaded together with the other sections
+     */
+    private String mSectionName;
+
+    /**
+     * Key of the list in {@link NewsStore} holding the loaded news
+     */
+    private String mListKey;
+
+    /**
+     * The last delivered list of {@link NewsObject}s
+     */
+    private List<NewsObject> mNewsObjects;
+
+    /**
+     * Whether {@link NewsStore} has already been consulted by this loader
+     */
+    private boolean mCacheChecked;
+
+    /**
+     * Whether the last loaded result came from {@link NewsStore} and still has to be revalidated
+     */
+    private boolean mRevalidatePending;
+
+    /**
+     * Whether the last network request failed, even after being retried
+     */
+    private volatile boolean mRequestFailed;
+
+    /**
+     * The load currently running or waiting in the {@link NewsExecutor} queue
+     */
+    private LoadTask mTask;
+
     /**
      * Constructs a new {@link NewsLoader}.
      *
@@ -31,6 +86,51 @@ public class NewsLoader extends AsyncTaskLoader<List<NewsObject>> {
     public NewsLoader(Context context, String stringUrl) {
         super(context);
         mStringUrl = stringUrl;
+        mListKey = stringUrl;
+    }
+
+    /**
+     * Constructs a new {@link NewsLoader} for a section. Batched sections are loaded together
+     * with the other batched sections when {@link FragmentUtils#BATCH_LOADING_ENABLED} is set.
+     *
+     * @param context of the activity
+     * @param section to load
+     */
+    public NewsLoader(Context context, Section section) {
+        this(context, section.buildRequestUrl(context));
+        // The section name is the key of its news in the store (see NewsSync).
+        mListKey = section.getName(context);
+        if (section.isBatched()) {
+            mSectionName = mListKey;
+        }
+    }
+
+    /**
+     * Get the request URL this loader loads the NewsObjects from.
+     *
+     * @return query URL.
+     */
+    public String getStringUrl() {
+        return mStringUrl;
+    }
+
+    /**
+     * Get the key of the list in {@link NewsStore} holding the news this loader loads.
+     *
+     * @return list key.
+     */
+    public String getListKey() {
+        return mListKey;
+    }
+
+    /**
+     * Get whether the last request for news failed (e.g. the API is rate limiting us),
+     * as opposed to there being no news.
+     *
+     * @return true if the last request failed.
+     */
+    public boolean hasRequestFailed() {
+        return mRequestFailed;
     }
 
     /**
@@ -38,17 +138,209 @@ public class NewsLoader extends AsyncTaskLoader<List<NewsObject>> {
      */
     @Override
     protected void onStartLoading() {
-        forceLoad();
+        // A new loader for a list loaded before (e.g. of a recreated fragment)
+        // starts with the list kept in memory.
+        boolean fresh = false;
+        if (mNewsObjects == null) {
+            SectionCache.Entry cached = SectionCache.get(mListKey);
+            if (cached != null) {
+                mNewsObjects = cached.getNewsObjects();
+                mCacheChecked = true;
+                fresh = cached.getAge() < NewsSync.STORE_MAX_AGE;
+            }
+        }
+
+        // Show what we already have, then check for fresh news if it may be outdated.
+        if (mNewsObjects != null) {
+            super.deliverResult(mNewsObjects);
+        }
+        if (!fresh) {
+            forceLoad();
+        }
     }
 
+    /**
+     * Handles a request to stop the Loader.
+     */
     @Override
+    protected void onStopLoading() {
+        cancelLoad();
+    }
+
+    /**
+     * Handles a request to completely reset the Loader.
+     */
+    @Override
+    protected void onReset() {
+        onStopLoading();
+        mNewsObjects = null;
+    }
+
+    /**
+     * Starts a new load on the {@link NewsExecutor}, cancelling the one in progress.
+     */
+    @Override
+    protected void onForceLoad() {
+        super.onForceLoad();
+        cancelLoad();
+        mTask = new LoadTask();
+        mTask.mFuture = NewsExecutor.get().submit(mTask);
+    }
+
+    /**
+     * Cancels the load in progress. Its result, if any, is never delivered.
+     */
+    @Override
+    protected boolean onCancelLoad() {
+        if (mTask == null) {
+            return false;
+        }
+        boolean cancelled = mTask.mFuture.cancel(true);
+        mTask = null;
+        return cancelled;
+    }
+
+    /**
+     * Called on a background thread to load the NewsObjects.
+     */
     public List<NewsObject> loadInBackground() {
         if (mStringUrl == null) {
             return null;
         }
 
+        // On the first load return the stored results, the network is checked right after.
+        if (!mCacheChecked) {
+            mCacheChecked = true;
+            List<NewsObject> cached =
+                    NewsStore.read(getContext(), mListKey, 0, FragmentUtils.PAGE_SIZE);
+            if (cached != null && !cached.isEmpty()) {
+                // News stored (or synced by NewsSync) a moment ago are shown as they are.
+                long age = System.currentTimeMillis()
+                        - NewsStore.getStoredTime(getContext(), mListKey);
+                mRevalidatePending = age < 0 || age > NewsSync.STORE_MAX_AGE;
+                return cached;
+            }
+        }
+
+        if (!FragmentUtils.isMyInternetConnected(getContext())) {
+            return null;
+        }
+
         // Perform the HTTP request for NewsObject data and process the response.
-        List<NewsObject> result = QueryUtils.fetchNewsObjectData(mStringUrl);
+        List<NewsObject> result;
+        if (mSectionName != null && FragmentUtils.BATCH_LOADING_ENABLED) {
+            result = NewsBatch.fetchSection(
+                    SectionRegistry.getBatchedSectionNames(getContext()), mSectionName, mStringUrl);
+        } else {
+            result = QueryUtils.fetchNewsObjectData(mStringUrl);
+        }
+        mRequestFailed = result == null;
+        if (mRequestFailed) {
+            // Outdated news are better than none, as long as nothing else is shown.
+            return mNewsObjects == null && !Thread.currentThread().isInterrupted()
+                    ? QueryUtils.fetchStaleNewsObjectData(mStringUrl) : null;
+        }
+        if (!result.isEmpty()) {
+            NewsStore.insert(getContext(), mListKey, result);
+        }
         return result;
     }
+
+    /**
+     * Delivers the result unless it is identical to the one already shown, or a failed
+     * refresh would replace results that are still displayed.
+     */
+    @Override
+    public void deliverResult(List<NewsObject> data) {
+        if (isReset()) {
+            return;
+        }
+
+        List<NewsObject> previous = mNewsObjects;
+        boolean revalidate = mRevalidatePending;
+        mRevalidatePending = false;
+
+        boolean changed;
+        if (data == null || data.isEmpty()) {
+            // Keep showing the previous results when the refresh brought nothing.
+            changed = previous == null;
+        } else {
+            changed = !data.equals(previous);
+            mNewsObjects = data;
+            // Outdated news of a failed request are not kept as if they were fresh.
+            if (changed && !mRequestFailed) {
+                SectionCache.put(mListKey, data);
+            }
+        }
+
+        if (isStarted() && changed) {
+            super.deliverResult(data);
+        }
+
+        // The cached results are on screen - now revalidate them against the network.
+        if (revalidate && isStarted()) {
+            forceLoad();
+        }
+    }
+
+    /**
+     * Called on the main thread when a load has finished.
+     */
+    private void onLoadComplete(LoadTask task, List<NewsObject> data) {
+        if (task != mTask) {
+            // The load was cancelled or replaced by a newer one.
+            Log.d(LOG_TAG, "Dropped result of cancelled load: " + mStringUrl);
+            return;
+        }
+        mTask = null;
+
+        Log.d(LOG_TAG, "Loaded " + (data == null ? 0 : data.size()) + " items in "
+                + (task.mFinishTime - task.mStartTime) + " ms (queued for "
+                + (task.mStartTime - task.mSubmitTime) + " ms): " + mStringUrl);
+        deliverResult(data);
+    }
+
+    /**
+     * A single run of {@link #loadInBackground()} on the {@link NewsExecutor},
+     * with its timing.
+     */
+    private final class LoadTask implements Runnable {
+        final long mSubmitTime = SystemClock.elapsedRealtime();
+        volatile long mStartTime;
+        volatile long mFinishTime;
+        Future<?> mFuture;
+
+        @Override
+        public void run() {
+            mStartTime = SystemClock.elapsedRealtime();
+            long startCpuTime = SystemClock.currentThreadTimeMillis();
+            PipelineMetrics.takeThreadBytes();
+
+            // Loaders only run for tabs which are shown, or about to be.
+            int previousPriority =
+                    RequestScheduler.setCurrentPriority(RequestScheduler.PRIORITY_VISIBLE);
+            String previousSection = PipelineMetrics.setCurrentSection(mListKey);
+            PipelineMetrics.beginTrace("News:load");
+            final List<NewsObject> data;
+            try {
+                data = loadInBackground();
+            } finally {
+                PipelineMetrics.endTrace();
+                PipelineMetrics.setCurrentSection(previousSection);
+                RequestScheduler.setCurrentPriority(previousPriority);
+            }
+
+            mFinishTime = SystemClock.elapsedRealtime();
+            // Loader IDs are section indexes (see Section#getLoaderId()).
+            PipelineMetrics.recordLoad(getId(), PipelineMetrics.takeThreadBytes(),
+                    SystemClock.currentThreadTimeMillis() - startCpuTime);
+
+            mHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    onLoadComplete(LoadTask.this, data);
+                }
+            });
+        }
+    }
 }
@@ -0,0 +1,497 @@
+package com.example.android.newsfeed;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+import android.support.v7.widget.LinearLayoutManager;
+import android.support.v7.widget.RecyclerView;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Future;
+
+/**
+ * Loads further pages of a section while the user scrolls its {@link RecyclerView} and
+ * appends them to the {@link NewsAdapter}.
+ * <p>
+ * Pages are requested from the network (and stored) while there is a connection. Offline, or
+ * when a request fails, the list continues with the stored news published before the last
+ * one shown - so older news can also be read offline. The store may miss news published
+ * between the stored ones, and the network pages no longer line up with the shown list, so
+ * from then on the list continues from the store until it is reloaded.
+ * <p>
+ * The next page is requested in the background as soon as the last visible item gets within
+ * {@link #PREFETCH_DISTANCE} items of the end of the list, so it is usually there before the
+ * user reaches it.
+ * <p>
+ * At most {@link #MAX_ITEMS} items are kept, in a window which moves with the user. When more
+ * are appended, the newest ones at the top of the list are dropped; when the user scrolls back
+ * up to within {@link #PREFETCH_DISTANCE} items of the top, they are read back from the store
+ * and the window drops items at the bottom instead, which are read back in turn when the user
+ * scrolls down again. Items shown once are in the store, so none of them is requested again.
+ * <p>
+ * A reloaded first page (see {@link #showFirstPage(String, String, List)}) replaces the list
+ * only as long as nothing has been appended to it. Afterwards its new items are merged into the
+ * top of the list, so the pages below and the scroll position are kept.
+ */
+
+public class NewsPager extends RecyclerView.OnScrollListener {
+
+    /**
+     * Tag for log messages
+     */
+    private static final String LOG_TAG = NewsPager.class.getSimpleName();
+
+    /**
+     * Number of items left below the last visible one at which the next page is requested
+     */
+    public static final int PREFETCH_DISTANCE = FragmentUtils.PAGE_SIZE / 2;
+
+    /**
+     * Maximum number of items kept in the adapter
+     */
+    public static final int MAX_ITEMS = 10 * FragmentUtils.PAGE_SIZE;
+
+    /**
+     * Time (in milliseconds) to wait before requesting a page again after a failure
+     */
+    private static final long RETRY_DELAY = 5000;
+
+    /**
+     * Handler receiving loaded pages on the main thread
+     */
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+
+    /**
+     * Application context, used to access the {@link NewsStore}
+     */
+    private final Context mContext;
+
+    /**
+     * Adapter the pages are appended to
+     */
+    private final NewsAdapter mAdapter;
+
+    /**
+     * Request URL of the first page
+     */
+    private String mFirstPageUrl;
+
+    /**
+     * Key of the list in {@link NewsStore}
+     */
+    private String mListKey;
+
+    /**
+     * Number of the next page to request
+     */
+    private int mNextPage;
+
+    /**
+     * Whether there may be more pages to load
+     */
+    private boolean mHasMore;
+
+    /**
+     * Whether pages are read from the store instead of the network, until the next reset
+     */
+    private boolean mStorePaging;
+
+    /**
+     * Whether items have been dropped at the top of the list since the last reset
+     */
+    private boolean mDroppedAbove;
+
+    /**
+     * Publication time of the newest item dropped at the top, if {@link #mDroppedAbove}
+     */
+    private long mNewestDroppedTime;
+
+    /**
+     * Whether items have been dropped at the bottom of the list since the last reset
+     */
+    private boolean mDroppedBelow;
+
+    /**
+     * Publication time of the oldest item dropped at the bottom, if {@link #mDroppedBelow}
+     */
+    private long mOldestDroppedTime;
+
+    /**
+     * Whether items have been appended to the first page since the last reset
+     */
+    private boolean mAppended;
+
+    /**
+     * Time of the last failed page request
+     */
+    private long mLastFailureTime;
+
+    /**
+     * Incremented on every reset, so pages requested before it are ignored
+     */
+    private int mGeneration;
+
+    /**
+     * Page request in progress, if any
+     */
+    private Future<?> mPendingPage;
+
+    /**
+     * Create a new {@link NewsPager}, which still has to be added as a scroll listener
+     * of a list using a {@link LinearLayoutManager}.
+     *
+     * @param context used to access the {@link NewsStore}
+     * @param adapter of the list
+     */
+    public NewsPager(Context context, NewsAdapter adapter) {
+        mContext = context.getApplicationContext();
+        mAdapter = adapter;
+    }
+
+    /**
+     * Show the (re)loaded first page of a list. It replaces the shown list and paging starts
+     * again, unless pages of the same list have been appended - then the list is kept, with the
+     * new items of the first page on top.
+     *
+     * @param firstPageUrl request URL of the first page
+     * @param listKey      key of the list in {@link NewsStore}
+     * @param firstPage    NewsObjects of the first page, newest first
+     */
+    public void showFirstPage(String firstPageUrl, String listKey, List<NewsObject> firstPage) {
+        if (!mAppended || !firstPageUrl.equals(mFirstPageUrl) || !listKey.equals(mListKey)) {
+            mAdapter.submitList(firstPage);
+            reset(firstPageUrl, listKey, firstPage.size());
+            return;
+        }
+        // A page appended while the lists are compared would be lost, it is requested again.
+        cancel();
+
+        if (mDroppedAbove) {
+            // The top of the list is not shown, the new items are read from the store with
+            // the dropped ones when the user scrolls up.
+            for (NewsObject newsObject : firstPage) {
+                mNewestDroppedTime = Math.max(mNewestDroppedTime, newsObject.getPublishedTime());
+            }
+            return;
+        }
+
+        // The first page, followed by the shown items which are not on it.
+        Set<String> firstPageUrls = new HashSet<>();
+        for (NewsObject newsObject : firstPage) {
+            firstPageUrls.add(newsObject.getNewsUrl());
+        }
+        List<NewsObject> merged = new ArrayList<>(firstPage);
+        for (int i = 0; i < mAdapter.getItemCount(); i++) {
+            NewsObject newsObject = mAdapter.getItem(i);
+            if (!firstPageUrls.contains(newsObject.getNewsUrl())) {
+                merged.add(newsObject);
+            }
+        }
+        if (merged.size() > MAX_ITEMS) {
+            if (!mDroppedBelow) {
+                mDroppedBelow = true;
+                mOldestDroppedTime = merged.get(merged.size() - 1).getPublishedTime();
+            }
+            merged = merged.subList(0, MAX_ITEMS);
+        }
+        Log.d(LOG_TAG, "Merged first page: " + (merged.size() - mAdapter.getItemCount())
+                + " new items");
+        mAdapter.submitList(merged);
+    }
+
+    /**
+     * Start paging again after the first page of the list has been (re)loaded.
+     *
+     * @param firstPageUrl   request URL of the first page
+     * @param listKey        key of the list in {@link NewsStore}
+     * @param firstPageCount number of items on the first page
+     */
+    private void reset(String firstPageUrl, String listKey, int firstPageCount) {
+        cancel();
+        mGeneration++;
+        mFirstPageUrl = firstPageUrl;
+        mListKey = listKey;
+        mNextPage = 2;
+        mHasMore = firstPageCount >= FragmentUtils.PAGE_SIZE;
+        mStorePaging = false;
+        mDroppedAbove = false;
+        mDroppedBelow = false;
+        mAppended = false;
+        mLastFailureTime = 0;
+    }
+
+    /**
+     * Cancel the page request in progress, e.g. when the list is destroyed.
+     */
+    public void cancel() {
+        if (mPendingPage != null) {
+            mPendingPage.cancel(true);
+            mPendingPage = null;
+        }
+    }
+
+    @Override
+    public void onScrolled(RecyclerView recyclerView, int dx, int dy) {
+        int totalItemCount = mAdapter.getItemCount();
+        if (mPendingPage != null || totalItemCount == 0 || mAdapter.isSubmitPending()) {
+            return;
+        }
+        LinearLayoutManager layoutManager = (LinearLayoutManager) recyclerView.getLayoutManager();
+        if (mDroppedAbove && layoutManager.findFirstVisibleItemPosition() <= PREFETCH_DISTANCE) {
+            loadPreviousItems();
+            return;
+        }
+        if (!mHasMore && !mDroppedBelow) {
+            return;
+        }
+        if (layoutManager.findLastVisibleItemPosition() < totalItemCount - 1 - PREFETCH_DISTANCE) {
+            return;
+        }
+        // After a failure (e.g. offline with nothing more stored) the next page is
+        // attempted once every RETRY_DELAY.
+        if (SystemClock.elapsedRealtime() - mLastFailureTime < RETRY_DELAY) {
+            return;
+        }
+        loadNextPage();
+    }
+
+    /**
+     * Read the items dropped at the top of the list back from the store, on the
+     * {@link NewsExecutor}.
+     */
+    private void loadPreviousItems() {
+        final int generation = mGeneration;
+        final String listKey = mListKey;
+        final long firstShownTime = mAdapter.getItem(0).getPublishedTime();
+        final long newestDroppedTime = mNewestDroppedTime;
+
+        mPendingPage = NewsExecutor.get().submit(new Runnable() {
+            @Override
+            public void run() {
+                final List<NewsObject> newsObjects = NewsStore.readNewer(mContext, listKey,
+                        firstShownTime, newestDroppedTime, FragmentUtils.PAGE_SIZE);
+                if (Thread.currentThread().isInterrupted()) {
+                    return;
+                }
+                mHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        onPreviousItemsLoaded(generation, newsObjects);
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Load the next page on the {@link NewsExecutor}: the items dropped at the bottom of the
+     * list from the store, or else a further page, from the network if possible.
+     */
+    private void loadNextPage() {
+        final int generation = mGeneration;
+        final int page = mNextPage;
+        final String pageUrl = FragmentUtils.buildPageRequestUrl(mFirstPageUrl, page);
+        final String listKey = mListKey;
+        final boolean storePaging = mStorePaging;
+        final boolean reload = mDroppedBelow;
+        final long oldestDroppedTime = mOldestDroppedTime;
+        final long lastShownTime =
+                mAdapter.getItem(mAdapter.getItemCount() - 1).getPublishedTime();
+
+        mPendingPage = NewsExecutor.get().submit(new Runnable() {
+            @Override
+            public void run() {
+                if (reload) {
+                    final List<NewsObject> newsObjects = NewsStore.readOlder(mContext, listKey,
+                            lastShownTime, oldestDroppedTime, FragmentUtils.PAGE_SIZE);
+                    if (Thread.currentThread().isInterrupted()) {
+                        return;
+                    }
+                    mHandler.post(new Runnable() {
+                        @Override
+                        public void run() {
+                            onNextItemsLoaded(generation, newsObjects);
+                        }
+                    });
+                    return;
+                }
+
+                List<NewsObject> newsObjects = null;
+                if (!storePaging && FragmentUtils.isMyInternetConnected(mContext)) {
+                    // The page is loaded before the user gets to it.
+                    int previousPriority = RequestScheduler.setCurrentPriority(
+                            RequestScheduler.PRIORITY_PREFETCH);
+                    String previousSection = PipelineMetrics.setCurrentSection(listKey);
+                    try {
+                        newsObjects = QueryUtils.fetchNewsObjectData(pageUrl);
+                    } finally {
+                        PipelineMetrics.setCurrentSection(previousSection);
+                        RequestScheduler.setCurrentPriority(previousPriority);
+                    }
+                    if (newsObjects != null && !newsObjects.isEmpty()) {
+                        NewsStore.insert(mContext, listKey, newsObjects);
+                    }
+                }
+                boolean fromStore = newsObjects == null;
+                if (fromStore) {
+                    // Continue with the stored news published before the last shown one
+                    // (the ones published at the same time are skipped as duplicates).
+                    newsObjects = NewsStore.readOlder(mContext, listKey, lastShownTime,
+                            Long.MIN_VALUE, FragmentUtils.PAGE_SIZE);
+                    if (newsObjects != null && newsObjects.isEmpty()) {
+                        // Nothing stored here - try again when there may be a connection.
+                        newsObjects = null;
+                    }
+                }
+                final List<NewsObject> result = newsObjects;
+                final boolean resultFromStore = fromStore;
+                if (Thread.currentThread().isInterrupted()) {
+                    return;
+                }
+                mHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        onPageLoaded(generation, page, result, resultFromStore);
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Called on the main thread when a page has been loaded.
+     */
+    private void onPageLoaded(int generation, int page, List<NewsObject> newsObjects,
+                              boolean fromStore) {
+        // Ignore pages requested before the last reset.
+        if (generation != mGeneration || mPendingPage == null) {
+            return;
+        }
+        mPendingPage = null;
+
+        if (newsObjects == null) {
+            mLastFailureTime = SystemClock.elapsedRealtime();
+            return;
+        }
+
+        if (fromStore) {
+            mStorePaging = true;
+        } else {
+            mNextPage++;
+        }
+        mHasMore = newsObjects.size() >= FragmentUtils.PAGE_SIZE;
+
+        // News published since the first page was loaded shift the pages,
+        // so skip items which are already in the list.
+        List<NewsObject> newItems = removeShown(newsObjects);
+        Log.d(LOG_TAG, (fromStore ? "Stored page: " : "Page " + page + ": ")
+                + newItems.size() + " new items");
+
+        mAppended |= !newItems.isEmpty();
+        mAdapter.appendItems(newItems);
+        trimTop();
+    }
+
+    /**
+     * Called on the main thread when items dropped at the bottom have been read back.
+     */
+    private void onNextItemsLoaded(int generation, List<NewsObject> newsObjects) {
+        if (generation != mGeneration || mPendingPage == null) {
+            return;
+        }
+        mPendingPage = null;
+
+        if (newsObjects == null) {
+            mLastFailureTime = SystemClock.elapsedRealtime();
+            return;
+        }
+        List<NewsObject> newItems = removeShown(newsObjects);
+        if (newsObjects.size() < FragmentUtils.PAGE_SIZE || newItems.isEmpty()) {
+            // Back at the oldest item shown, further pages are loaded as before.
+            mDroppedBelow = false;
+        }
+        Log.d(LOG_TAG, "Reloaded " + newItems.size() + " items below");
+
+        mAppended |= !newItems.isEmpty();
+        mAdapter.appendItems(newItems);
+        trimTop();
+    }
+
+    /**
+     * Called on the main thread when items dropped at the top have been read back.
+     */
+    private void onPreviousItemsLoaded(int generation, List<NewsObject> newsObjects) {
+        if (generation != mGeneration || mPendingPage == null) {
+            return;
+        }
+        mPendingPage = null;
+
+        if (newsObjects == null) {
+            // The store cannot be read, so the list starts where it is now.
+            mDroppedAbove = false;
+            return;
+        }
+        List<NewsObject> newItems = removeShown(newsObjects);
+        if (newsObjects.size() < FragmentUtils.PAGE_SIZE || newItems.isEmpty()) {
+            // Back at the top of the list.
+            mDroppedAbove = false;
+        }
+        Log.d(LOG_TAG, "Reloaded " + newItems.size() + " items above");
+
+        mAdapter.prependItems(newItems);
+        trimBottom();
+    }
+
+    /**
+     * Return the NewsObjects which are not in the list yet.
+     */
+    private List<NewsObject> removeShown(List<NewsObject> newsObjects) {
+        Set<String> shownUrls = new HashSet<>();
+        for (int i = 0; i < mAdapter.getItemCount(); i++) {
+            shownUrls.add(mAdapter.getItem(i).getNewsUrl());
+        }
+        List<NewsObject> newItems = new ArrayList<>();
+        for (NewsObject newsObject : newsObjects) {
+            if (shownUrls.add(newsObject.getNewsUrl())) {
+                newItems.add(newsObject);
+            }
+        }
+        return newItems;
+    }
+
+    /**
+     * Drop the newest items at the top of the list when there are more than {@link #MAX_ITEMS}.
+     * The layout manager keeps the visible items in place.
+     */
+    private void trimTop() {
+        int excess = mAdapter.getItemCount() - MAX_ITEMS;
+        if (excess > 0) {
+            if (!mDroppedAbove) {
+                mDroppedAbove = true;
+                mNewestDroppedTime = mAdapter.getItem(0).getPublishedTime();
+            }
+            mAdapter.removeFirstItems(excess);
+        }
+    }
+
+    /**
+     * Drop the oldest items at the bottom of the list when there are more than
+     * {@link #MAX_ITEMS}.
+     */
+    private void trimBottom() {
+        int excess = mAdapter.getItemCount() - MAX_ITEMS;
+        if (excess > 0) {
+            if (!mDroppedBelow) {
+                mDroppedBelow = true;
+                mOldestDroppedTime =
+                        mAdapter.getItem(mAdapter.getItemCount() - 1).getPublishedTime();
+            }
+            mAdapter.removeLastItems(excess);
+        }
+    }
+}
@@ -0,0 +1,506 @@
+package com.example.android.newsfeed;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.DatabaseUtils;
+import android.database.SQLException;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import android.os.SystemClock;
+import android.support.annotation.VisibleForTesting;
+import android.util.Log;
+
+import com.example.android.newsfeed.NewsContract.ArticleEntry;
+import com.example.android.newsfeed.NewsContract.ArticleSearchEntry;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Database-backed store of the {@link NewsObject}s of every list (e.g. of every section).
+ * Lets {@link NewsLoader} show the stored news immediately (and while offline) before the
+ * network request completes, and {@link NewsPager} page through older news without it.
+ * <p>
+ * Lists are only ever read a window at a time, so a list may hold thousands of articles
+ * without all of them being loaded into memory. All methods access the database and
+ * must not be called on the main thread.
+ * <p>
+ * Titles, authors and section names of all stored articles are also indexed for full-text
+ * search (see {@link #search(Context, String, int)}).
+ */
+
+public final class NewsStore {
+
+    /**
+     * Tag for log messages
+     */
+    private static final String LOG_TAG = NewsStore.class.getSimpleName();
+
+    /**
+     * Maximum number of articles kept per list, the oldest ones are deleted
+     */
+    private static final int MAX_ARTICLES_PER_LIST = 2000;
+
+    /**
+     * Number of rows inserted per transaction. Keeps transactions short, so reads of other
+     * lists are not blocked for long while a large response is being stored.
+     */
+    private static final int INSERT_BATCH_SIZE = 100;
+
+    /**
+     * Columns read to build a {@link NewsObject}, with the publication time parsed when it was
+     * stored, so no date is parsed again
+     */
+    private static final String[] NEWS_OBJECT_PROJECTION = {
+            ArticleEntry.COLUMN_TITLE,
+            ArticleEntry.COLUMN_SECTION_ID,
+            ArticleEntry.COLUMN_SECTION_NAME,
+            ArticleEntry.COLUMN_PUBLISHED_DATE,
+            ArticleEntry.COLUMN_PUBLISHED_TIME,
+            ArticleEntry.COLUMN_WEB_URL,
+            ArticleEntry.COLUMN_AUTHOR
+    };
+
+    /**
+     * Weight of a match in each of {@link ArticleSearchEntry#INDEXED_COLUMNS}:
+     * a match in the title counts more than one in the author or section name
+     */
+    private static final double[] SEARCH_COLUMN_WEIGHTS = {3.0, 2.0, 1.0};
+
+    /**
+     * Query returning the stored articles matching a full-text query, with the match info
+     * used to rank them: number of phrases, number of columns, then for every phrase and
+     * column the hits in this row, the hits in all rows and the rows with hits
+     */
+    private static final String SQL_SEARCH_ARTICLES = "SELECT "
+            + "a." + ArticleEntry.COLUMN_TITLE + ", "
+            + "a." + ArticleEntry.COLUMN_SECTION_ID + ", "
+            + "a." + ArticleEntry.COLUMN_SECTION_NAME + ", "
+            + "a." + ArticleEntry.COLUMN_PUBLISHED_DATE + ", "
+            + "a." + ArticleEntry.COLUMN_WEB_URL + ", "
+            + "a." + ArticleEntry.COLUMN_AUTHOR + ", "
+            + "a." + ArticleEntry.COLUMN_PUBLISHED_TIME + ", "
+            + "matchinfo(" + ArticleSearchEntry.TABLE_NAME + ", 'pcx')"
+            + " FROM " + ArticleSearchEntry.TABLE_NAME
+            + " JOIN " + ArticleEntry.TABLE_NAME + " a"
+            + " ON a." + ArticleEntry._ID + " = " + ArticleSearchEntry.TABLE_NAME + ".docid"
+            + " WHERE " + ArticleSearchEntry.TABLE_NAME + " MATCH ?";
+
+    /**
+     * Statement storing an article, replacing the row of the same article in the same list
+     */
+    private static final String SQL_INSERT_ARTICLE = "INSERT OR REPLACE INTO "
+            + ArticleEntry.TABLE_NAME + " ("
+            + ArticleEntry.COLUMN_LIST_KEY + ", "
+            + ArticleEntry.COLUMN_WEB_URL + ", "
+            + ArticleEntry.COLUMN_TITLE + ", "
+            + ArticleEntry.COLUMN_SECTION_ID + ", "
+            + ArticleEntry.COLUMN_SECTION_NAME + ", "
+            + ArticleEntry.COLUMN_PUBLISHED_DATE + ", "
+            + ArticleEntry.COLUMN_PUBLISHED_TIME + ", "
+            + ArticleEntry.COLUMN_AUTHOR + ", "
+            + ArticleEntry.COLUMN_STORED_TIME + ") VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    /**
+     * Create a private constructor because no one should ever create a {@link NewsStore} object.
+     */
+    private NewsStore() {
+    }
+
+    /**
+     * Return a window of the stored NewsObjects of a list, newest first.
+     *
+     * @param listKey key of the list, e.g. the section name
+     * @param offset  number of newest NewsObjects to skip
+     * @param limit   maximum number of NewsObjects to return
+     * @return the NewsObjects (empty if there are none), or null if they cannot be read.
+     */
+    public static List<NewsObject> read(Context context, String listKey, int offset, int limit) {
+        return query(context, ArticleEntry.COLUMN_LIST_KEY + "=?", new String[]{listKey},
+                " DESC", offset + "," + limit);
+    }
+
+    /**
+     * Return the newest stored NewsObjects of a list published within the given times,
+     * newest first, e.g. the ones following the last NewsObject shown.
+     *
+     * @param listKey key of the list, e.g. the section name
+     * @param maxTime latest publication time (in milliseconds since the epoch) to return
+     * @param minTime earliest publication time to return, Long.MIN_VALUE for any
+     * @param limit   maximum number of NewsObjects to return
+     * @return the NewsObjects (empty if there are none), or null if they cannot be read.
+     */
+    public static List<NewsObject> readOlder(Context context, String listKey, long maxTime,
+                                             long minTime, int limit) {
+        return query(context, ArticleEntry.COLUMN_LIST_KEY + "=? AND "
+                        + ArticleEntry.COLUMN_PUBLISHED_TIME + " BETWEEN ? AND ?",
+                new String[]{listKey, String.valueOf(minTime), String.valueOf(maxTime)},
+                " DESC", String.valueOf(limit));
+    }
+
+    /**
+     * Return the oldest stored NewsObjects of a list published within the given times,
+     * newest first, e.g. the ones preceding the first NewsObject shown.
+     *
+     * @param listKey key of the list, e.g. the section name
+     * @param minTime earliest publication time (in milliseconds since the epoch) to return
+     * @param maxTime latest publication time to return
+     * @param limit   maximum number of NewsObjects to return
+     * @return the NewsObjects (empty if there are none), or null if they cannot be read.
+     */
+    public static List<NewsObject> readNewer(Context context, String listKey, long minTime,
+                                             long maxTime, int limit) {
+        List<NewsObject> newsObjects = query(context, ArticleEntry.COLUMN_LIST_KEY + "=? AND "
+                        + ArticleEntry.COLUMN_PUBLISHED_TIME + " BETWEEN ? AND ?",
+                new String[]{listKey, String.valueOf(minTime), String.valueOf(maxTime)},
+                " ASC", String.valueOf(limit));
+        if (newsObjects != null) {
+            Collections.reverse(newsObjects);
+        }
+        return newsObjects;
+    }
+
+    /**
+     * Return the stored NewsObjects matching the selection, ordered by publication time.
+     *
+     * @param order " DESC" for newest first, " ASC" for oldest first
+     */
+    private static List<NewsObject> query(Context context, String selection,
+                                          String[] selectionArgs, String order, String limit) {
+        Cursor cursor = null;
+        try {
+            SQLiteDatabase db = NewsDbHelper.getInstance(context).getReadableDatabase();
+            // The list_time index delivers the rows in order, only the window is read.
+            cursor = db.query(ArticleEntry.TABLE_NAME,
+                    NEWS_OBJECT_PROJECTION,
+                    selection,
+                    selectionArgs,
+                    null,
+                    null,
+                    ArticleEntry.COLUMN_PUBLISHED_TIME + order,
+                    limit);
+
+            // Figure out the index of each column
+            int titleColumnIndex = cursor.getColumnIndexOrThrow(ArticleEntry.COLUMN_TITLE);
+            int sectionIdColumnIndex = cursor.getColumnIndexOrThrow(ArticleEntry.COLUMN_SECTION_ID);
+            int sectionNameColumnIndex = cursor.getColumnIndexOrThrow(ArticleEntry.COLUMN_SECTION_NAME);
+            int dateColumnIndex = cursor.getColumnIndexOrThrow(ArticleEntry.COLUMN_PUBLISHED_DATE);
+            int timeColumnIndex = cursor.getColumnIndexOrThrow(ArticleEntry.COLUMN_PUBLISHED_TIME);
+            int urlColumnIndex = cursor.getColumnIndexOrThrow(ArticleEntry.COLUMN_WEB_URL);
+            int authorColumnIndex = cursor.getColumnIndexOrThrow(ArticleEntry.COLUMN_AUTHOR);
+
+            List<NewsObject> newsObjects = new ArrayList<>(cursor.getCount());
+            while (cursor.moveToNext()) {
+                newsObjects.add(new NewsObject(
+                        cursor.getString(titleColumnIndex),
+                        cursor.getString(sectionIdColumnIndex),
+                        cursor.getString(sectionNameColumnIndex),
+                        cursor.getString(dateColumnIndex),
+                        cursor.getLong(timeColumnIndex),
+                        cursor.getString(urlColumnIndex),
+                        cursor.getString(authorColumnIndex)));
+            }
+            return newsObjects;
+        } catch (SQLException e) {
+            Log.e(LOG_TAG, "Problem reading stored NewsObjects", e);
+            return null;
+        } finally {
+            if (cursor != null) {
+                cursor.close();
+            }
+        }
+    }
+
+    /**
+     * Store the given NewsObjects in a list, replacing the stored rows of the same articles,
+     * and delete the oldest articles of the list beyond {@link #MAX_ARTICLES_PER_LIST}.
+     * NewsObjects without URL cannot be told apart and are not stored.
+     *
+     * @param listKey key of the list, e.g. the section name
+     */
+    public static void insert(Context context, String listKey, List<NewsObject> newsObjects) {
+        SQLiteDatabase db;
+        try {
+            db = NewsDbHelper.getInstance(context).getWritableDatabase();
+        } catch (SQLException e) {
+            Log.e(LOG_TAG, "Cannot open the database", e);
+            return;
+        }
+
+        long storedTime = System.currentTimeMillis();
+        // One compiled statement is rebound for every row, instead of building ContentValues.
+        SQLiteStatement statement = db.compileStatement(SQL_INSERT_ARTICLE);
+        try {
+            int size = newsObjects.size();
+            for (int batchStart = 0; batchStart < size; batchStart += INSERT_BATCH_SIZE) {
+                int batchEnd = Math.min(batchStart + INSERT_BATCH_SIZE, size);
+                db.beginTransaction();
+                try {
+                    for (int i = batchStart; i < batchEnd; i++) {
+                        NewsObject newsObject = newsObjects.get(i);
+                        if (newsObject.getNewsUrl() == null) {
+                            continue;
+                        }
+                        statement.clearBindings();
+                        statement.bindString(1, listKey);
+                        statement.bindString(2, newsObject.getNewsUrl());
+                        bindStringOrNull(statement, 3, newsObject.getTitle());
+                        bindStringOrNull(statement, 4, newsObject.getSectionId());
+                        bindStringOrNull(statement, 5, newsObject.getCategory());
+                        bindStringOrNull(statement, 6, newsObject.getPublishedDate());
+                        statement.bindLong(7, newsObject.getPublishedTime());
+                        bindStringOrNull(statement, 8, newsObject.getAuthor());
+                        statement.bindLong(9, storedTime);
+                        statement.executeInsert();
+                    }
+                    db.setTransactionSuccessful();
+                } finally {
+                    db.endTransaction();
+                }
+            }
+
+            deleteOldest(db, listKey);
+        } catch (SQLException e) {
+            Log.e(LOG_TAG, "Problem storing NewsObjects", e);
+        } finally {
+            statement.close();
+        }
+    }
+
+    /**
+     * Delete all stored NewsObjects of all lists (and their search index entries).
+     */
+    @VisibleForTesting
+    public static void deleteAll(Context context) {
+        try {
+            SQLiteDatabase db = NewsDbHelper.getInstance(context).getWritableDatabase();
+            db.delete(ArticleEntry.TABLE_NAME, null, null);
+        } catch (SQLException e) {
+            Log.e(LOG_TAG, "Problem deleting NewsObjects", e);
+        }
+    }
+
+    /**
+     * Return the time (in milliseconds since the epoch) NewsObjects were last stored
+     * in the given list, or 0 if there are none.
+     */
+    public static long getStoredTime(Context context, String listKey) {
+        try {
+            SQLiteDatabase db = NewsDbHelper.getInstance(context).getReadableDatabase();
+            return DatabaseUtils.longForQuery(db, "SELECT MAX("
+                            + ArticleEntry.COLUMN_STORED_TIME + ") FROM " + ArticleEntry.TABLE_NAME
+                            + " WHERE " + ArticleEntry.COLUMN_LIST_KEY + "=?",
+                    new String[]{listKey});
+        } catch (SQLException e) {
+            Log.e(LOG_TAG, "Problem reading stored time", e);
+            return 0;
+        }
+    }
+
+    /**
+     * Return the publication date of the newest stored NewsObject of the given list,
+     * or null if there is none (or none with a known date).
+     */
+    public static String getNewestPublishedDate(Context context, String listKey) {
+        Cursor cursor = null;
+        try {
+            SQLiteDatabase db = NewsDbHelper.getInstance(context).getReadableDatabase();
+            cursor = db.query(ArticleEntry.TABLE_NAME,
+                    new String[]{ArticleEntry.COLUMN_PUBLISHED_DATE},
+                    ArticleEntry.COLUMN_LIST_KEY + "=? AND "
+                            + ArticleEntry.COLUMN_PUBLISHED_TIME + "!=" + NewsObject.UNKNOWN_TIME,
+                    new String[]{listKey},
+                    null,
+                    null,
+                    ArticleEntry.COLUMN_PUBLISHED_TIME + " DESC",
+                    "1");
+            return cursor.moveToFirst() ? cursor.getString(0) : null;
+        } catch (SQLException e) {
+            Log.e(LOG_TAG, "Problem reading newest publication date", e);
+            return null;
+        } finally {
+            if (cursor != null) {
+                cursor.close();
+            }
+        }
+    }
+
+    /**
+     * Return the stored NewsObjects (of any list) matching all words of the query, where the
+     * last letters of each word may be missing (e.g. "clim chan" matches "climate change").
+     * The best matches come first: matches in the title rank higher, and so do words which
+     * are rare among the stored articles. Matches of equal rank are ordered newest first.
+     *
+     * @param query as typed by the user
+     * @param limit maximum number of NewsObjects to return
+     * @return the NewsObjects (empty if none match), or null if the index cannot be read.
+     */
+    public static List<NewsObject> search(Context context, String query, int limit) {
+        String matchQuery = buildMatchQuery(query);
+        if (matchQuery == null) {
+            return new ArrayList<>();
+        }
+
+        long startTime = SystemClock.elapsedRealtime();
+        Cursor cursor = null;
+        try {
+            SQLiteDatabase db = NewsDbHelper.getInstance(context).getReadableDatabase();
+            cursor = db.rawQuery(SQL_SEARCH_ARTICLES, new String[]{matchQuery});
+
+            // The same article may be stored in several lists - keep it once.
+            Map<String, SearchHit> hits = new HashMap<>();
+            while (cursor.moveToNext()) {
+                String url = cursor.getString(4);
+                double score = scoreMatch(cursor.getBlob(7));
+                SearchHit hit = hits.get(url);
+                if (hit == null || hit.score < score) {
+                    hits.put(url, new SearchHit(cursor, score));
+                }
+            }
+
+            List<SearchHit> ranked = new ArrayList<>(hits.values());
+            Collections.sort(ranked, new Comparator<SearchHit>() {
+                @Override
+                public int compare(SearchHit first, SearchHit second) {
+                    if (first.score != second.score) {
+                        return first.score < second.score ? 1 : -1;
+                    }
+                    return first.publishedTime < second.publishedTime ? 1
+                            : (first.publishedTime == second.publishedTime ? 0 : -1);
+                }
+            });
+
+            List<NewsObject> newsObjects = new ArrayList<>(Math.min(limit, ranked.size()));
+            for (int i = 0; i < ranked.size() && i < limit; i++) {
+                newsObjects.add(ranked.get(i).toNewsObject());
+            }
+
+            Log.d(LOG_TAG, "Search \"" + matchQuery + "\": " + newsObjects.size() + " of "
+                    + hits.size() + " matches in " + (SystemClock.elapsedRealtime() - startTime)
+                    + " ms");
+            return newsObjects;
+        } catch (SQLException e) {
+            Log.e(LOG_TAG, "Problem searching stored NewsObjects", e);
+            return null;
+        } finally {
+            if (cursor != null) {
+                cursor.close();
+            }
+        }
+    }
+
+    /**
+     * Build the full-text query for the words typed by the user: every word (letters and
+     * digits only) becomes a prefix query, and all of them have to match.
+     *
+     * @return the MATCH query, or null if the user query contains no words.
+     */
+    @VisibleForTesting
+    static String buildMatchQuery(String query) {
+        if (query == null) {
+            return null;
+        }
+        StringBuilder matchQuery = new StringBuilder();
+        StringBuilder word = new StringBuilder();
+        String lowerCaseQuery = query.toLowerCase(Locale.US);
+        for (int i = 0; i <= lowerCaseQuery.length(); i++) {
+            char c = i < lowerCaseQuery.length() ? lowerCaseQuery.charAt(i) : ' ';
+            if (Character.isLetterOrDigit(c)) {
+                word.append(c);
+            } else if (word.length() > 0) {
+                if (matchQuery.length() > 0) {
+                    matchQuery.append(' ');
+                }
+                matchQuery.append(word).append('*');
+                word.setLength(0);
+            }
+        }
+        return matchQuery.length() == 0 ? null : matchQuery.toString();
+    }
+
+    /**
+     * Score a matching row from its matchinfo 'pcx' blob: for every word and column, the
+     * share of all hits of the word which are in this row, weighted by the column.
+     */
+    @VisibleForTesting
+    static double scoreMatch(byte[] matchInfo) {
+        // The blob is an array of 32-bit unsigned integers in the native byte order.
+        ByteBuffer buffer = ByteBuffer.wrap(matchInfo).order(ByteOrder.nativeOrder());
+        int phraseCount = buffer.getInt(0);
+        int columnCount = buffer.getInt(4);
+
+        double score = 0;
+        for (int phrase = 0; phrase < phraseCount; phrase++) {
+            for (int column = 0; column < columnCount; column++) {
+                int offset = 4 * (2 + 3 * (phrase * columnCount + column));
+                int rowHits = buffer.getInt(offset);
+                int allHits = buffer.getInt(offset + 4);
+                if (rowHits > 0 && column < SEARCH_COLUMN_WEIGHTS.length) {
+                    score += SEARCH_COLUMN_WEIGHTS[column] * rowHits / allHits;
+                }
+            }
+        }
+        return score;
+    }
+
+    /**
+     * Delete the oldest articles of the list beyond {@link #MAX_ARTICLES_PER_LIST}.
+     */
+    private static void deleteOldest(SQLiteDatabase db, String listKey) {
+        db.delete(ArticleEntry.TABLE_NAME,
+                ArticleEntry.COLUMN_LIST_KEY + "=? AND " + ArticleEntry._ID + " NOT IN (SELECT "
+                        + ArticleEntry._ID + " FROM " + ArticleEntry.TABLE_NAME + " WHERE "
+                        + ArticleEntry.COLUMN_LIST_KEY + "=? ORDER BY "
+                        + ArticleEntry.COLUMN_PUBLISHED_TIME + " DESC LIMIT "
+                        + MAX_ARTICLES_PER_LIST + ")",
+                new String[]{listKey, listKey});
+    }
+
+    /**
+     * Bind the value to the statement, or null if there is no value.
+     */
+    private static void bindStringOrNull(SQLiteStatement statement, int index, String value) {
+        if (value == null) {
+            statement.bindNull(index);
+        } else {
+            statement.bindString(index, value);
+        }
+    }
+
+    /**
+     * A stored article matching a search, with its rank.
+     */
+    private static final class SearchHit {
+        final String title;
+        final String sectionId;
+        final String sectionName;
+        final String publishedDate;
+        final String url;
+        final String author;
+        final long publishedTime;
+        final double score;
+
+        SearchHit(Cursor cursor, double score) {
+            title = cursor.getString(0);
+            sectionId = cursor.getString(1);
+            sectionName = cursor.getString(2);
+            publishedDate = cursor.getString(3);
+            url = cursor.getString(4);
+            author = cursor.getString(5);
+            publishedTime = cursor.getLong(6);
+            this.score = score;
+        }
+
+        NewsObject toNewsObject() {
+            return new NewsObject(title, sectionId, sectionName, publishedDate, publishedTime,
+                    url, author);
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package com.example.android.newsfeed;
+
+import android.annotation.TargetApi;
+import android.app.job.JobInfo;
+import android.app.job.JobScheduler;
+import android.content.ComponentName;
+import android.content.Context;
+import android.os.Build;
+import android.util.Log;
+
+import java.util.List;
+
+/**
+ * Keeps the stored news of every section up to date in the background.
+ * <p>
+ * A periodic job ({@link NewsSyncJobService}) runs while the device is charging and on an
+ * unmetered network. For each section it only asks for the news published since the newest
+ * stored one (Guardian "from-date" parameter) and adds them to {@link NewsStore}, so
+ * {@link NewsLoader} can show fresh news from the store without waiting for the network.
+ */
+
+public final class NewsSync {
+
+    /**
+     * Tag for log messages
+     */
+    private static final String LOG_TAG = NewsSync.class.getSimpleName();
+
+    /**
+     * ID of the periodic sync job
+     */
+    private static final int SYNC_JOB_ID = 1;
+
+    /**
+     * How often (in milliseconds) the stored news are synced
+     */
+    private static final long SYNC_INTERVAL = 60 * 60 * 1000;
+
+    /**
+     * How long (in milliseconds) stored news are shown without revalidating them over the network
+     */
+    public static final long STORE_MAX_AGE = 15 * 60 * 1000;
+
+    /**
+     * Maximum number of pages of new items requested per section and sync
+     */
+    private static final int MAX_SYNC_PAGES = 5;
+
+    /**
+     * Create a private constructor because no one should ever create a {@link NewsSync} object.
+     */
+    private NewsSync() {
+    }
+
+    /**
+     * Schedule the periodic sync job, unless it is already scheduled. Job scheduling is only
+     * available from Lollipop on - on older devices the news are loaded when a tab is shown.
+     */
+    public static void schedule(Context context) {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.LOLLIPOP) {
+            return;
+        }
+        scheduleJob(context.getApplicationContext());
+    }
+
+    @TargetApi(Build.VERSION_CODES.LOLLIPOP)
+    private static void scheduleJob(Context context) {
+        JobScheduler jobScheduler =
+                (JobScheduler) context.getSystemService(Context.JOB_SCHEDULER_SERVICE);
+
+        // Scheduling the job again would restart its period - keep the pending one.
+        for (JobInfo pendingJob : jobScheduler.getAllPendingJobs()) {
+            if (pendingJob.getId() == SYNC_JOB_ID) {
+                return;
+            }
+        }
+
+        JobInfo job = new JobInfo.Builder(SYNC_JOB_ID,
+                new ComponentName(context, NewsSyncJobService.class))
+                .setRequiredNetworkType(JobInfo.NETWORK_TYPE_UNMETERED)
+                .setRequiresCharging(true)
+                .setPeriodic(SYNC_INTERVAL)
+                .setPersisted(true)
+                .build();
+        if (jobScheduler.schedule(job) != JobScheduler.RESULT_SUCCESS) {
+            Log.e(LOG_TAG, "Cannot schedule news sync");
+        }
+    }
+
+    /**
+     * Sync the stored news of all sections. Must not be called on the main thread.
+     *
+     * @return true if all sections have been synced, false if any request failed.
+     */
+    public static boolean syncAll(Context context) {
+        RequestScheduler.getInstance().init(context);
+        boolean success = true;
+        for (Section section : SectionRegistry.getSections()) {
+            if (Thread.currentThread().isInterrupted()) {
+                return false;
+            }
+            success &= syncSection(context, section);
+        }
+        return success;
+    }
+
+    /**
+     * Request the news of the section published since the newest stored one and add them
+     * to the store. Without stored news the whole first page is requested. Further pages are
+     * requested while they are full, so no gap is left between the new and the stored news.
+     *
+     * @return true if the section has been synced, false if the request failed.
+     */
+    private static boolean syncSection(Context context, Section section) {
+        String requestUrl = section.buildRequestUrl(context);
+        // Same list key as used by NewsLoader for the section.
+        String listKey = section.getName(context);
+
+        String deltaUrl = requestUrl;
+        String newestDate = NewsStore.getNewestPublishedDate(context, listKey);
+        if (newestDate != null) {
+            deltaUrl = FragmentUtils.buildDeltaRequestUrl(requestUrl, newestDate);
+        }
+
+        int received = 0;
+        for (int page = 1; page <= MAX_SYNC_PAGES; page++) {
+            String pageUrl = page == 1 ? deltaUrl : FragmentUtils.buildPageRequestUrl(deltaUrl, page);
+            List<NewsObject> delta = QueryUtils.fetchNewsObjectData(pageUrl);
+            if (delta == null) {
+                return false;
+            }
+
+            // Articles received again replace their stored rows, so nothing is duplicated.
+            NewsStore.insert(context, listKey, delta);
+            received += delta.size();
+            if (newestDate == null || delta.size() < FragmentUtils.PAGE_SIZE) {
+                break;
+            }
+        }
+        Log.d(LOG_TAG, "Synced " + listKey + ": " + received + " items");
+        return true;
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.android.newsfeed;
+
+import android.annotation.TargetApi;
+import android.app.job.JobParameters;
+import android.app.job.JobService;
+import android.os.Build;
+import android.util.Log;
+
+import java.util.concurrent.Future;
+
+/**
+ * Runs the periodic news sync scheduled by {@link NewsSync} on the shared {@link NewsExecutor}.
+ */
+
+@TargetApi(Build.VERSION_CODES.LOLLIPOP)
+public class NewsSyncJobService extends JobService {
+
+    /**
+     * Tag for log messages
+     */
+    private static final String LOG_TAG = NewsSyncJobService.class.getSimpleName();
+
+    /**
+     * The sync currently running or waiting in the {@link NewsExecutor} queue
+     */
+    private Future<?> mSync;
+
+    @Override
+    public boolean onStartJob(final JobParameters params) {
+        mSync = NewsExecutor.get().submit(new Runnable() {
+            @Override
+            public void run() {
+                // The sync never delays requests for news the user is waiting for.
+                int previousPriority =
+                        RequestScheduler.setCurrentPriority(RequestScheduler.PRIORITY_BACKGROUND);
+                boolean success;
+                try {
+                    success = NewsSync.syncAll(getApplicationContext());
+                } finally {
+                    RequestScheduler.setCurrentPriority(previousPriority);
+                }
+                Log.d(LOG_TAG, "News sync finished, success: " + success);
+                // Let the scheduler retry (with its backoff) if any section failed.
+                jobFinished(params, !success);
+            }
+        });
+        // The job goes on in the background.
+        return true;
+    }
+
+    @Override
+    public boolean onStopJob(JobParameters params) {
+        // The constraints are no longer met - stop and sync again next time.
+        if (mSync != null) {
+            mSync.cancel(true);
+            mSync = null;
+        }
+        return true;
+    }
+}
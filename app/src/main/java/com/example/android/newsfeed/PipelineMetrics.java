@@ -0,0 +1,356 @@
+package com.example.android.newsfeed;
+
+import android.support.v4.os.TraceCompat;
+import android.util.SparseBooleanArray;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Records where the time of loading news goes, per section: the stages of every network
+ * request (DNS lookup, connect, time to first byte, download, parse) and the binding of the
+ * list items, together with the downloaded bytes and the number of items of every response.
+ * <p>
+ * A request is recorded by the thread performing it, between {@link #beginRequest()} and
+ * {@link #endRequest(int)}, and counts for the section set with
+ * {@link #setCurrentSection(String)} on that thread. The stages are also marked as trace
+ * sections (see {@link #beginTrace(String)}), visible in systrace / Perfetto traces.
+ * <p>
+ * Every section load is also counted per session of {@link NewsFeedActivity} (downloaded bytes
+ * and CPU time, see {@link #recordLoad(int, long, long)}). Sections are only loaded when their
+ * tab is shown (or about to be), so the report estimates the bytes and CPU time saved compared
+ * to loading every section at startup.
+ * <p>
+ * The histograms are shown by {@link PipelineMetricsActivity} and written by {@link #dump()},
+ * e.g. with "adb shell dumpsys activity com.example.android.newsfeed".
+ */
+
+public final class PipelineMetrics {
+
+    /**
+     * Stages of a request and of showing its news
+     */
+    public static final int STAGE_DNS = 0;
+    public static final int STAGE_CONNECT = 1;
+    public static final int STAGE_TTFB = 2;
+    public static final int STAGE_DOWNLOAD = 3;
+    public static final int STAGE_PARSE = 4;
+    public static final int STAGE_BIND = 5;
+
+    private static final String[] STAGE_NAMES =
+            {"dns", "connect", "ttfb", "download", "parse", "bind"};
+
+    /**
+     * Section of requests made by threads which have not set one (e.g. search)
+     */
+    private static final String OTHER_SECTION = "other";
+
+    /**
+     * Section the requests of the current thread count for
+     */
+    private static final ThreadLocal<String> sCurrentSection = new ThreadLocal<>();
+
+    /**
+     * Request being performed by the current thread, if any
+     */
+    private static final ThreadLocal<Request> sCurrentRequest = new ThreadLocal<>();
+
+    /**
+     * Metrics by section, in order of the first request. Guarded by this map.
+     */
+    private static final Map<String, SectionMetrics> sSections = new LinkedHashMap<>();
+
+    /**
+     * Bytes downloaded by the current thread since the last {@link #takeThreadBytes()}
+     */
+    private static final ThreadLocal<long[]> sThreadBytes = new ThreadLocal<long[]>() {
+        @Override
+        protected long[] initialValue() {
+            return new long[1];
+        }
+    };
+
+    /**
+     * Sections loaded at least once in this session, by section index. Guarded by the class,
+     * like the session totals.
+     */
+    private static final SparseBooleanArray sLoadedSections = new SparseBooleanArray();
+
+    /**
+     * Totals of all loads in this session
+     */
+    private static int sLoads;
+    private static long sTotalBytes;
+    private static long sTotalCpuMillis;
+
+    /**
+     * Create a private constructor because no one should ever create a {@link PipelineMetrics} object.
+     */
+    private PipelineMetrics() {
+    }
+
+    /**
+     * Set the section the requests made by the current thread count for from now on.
+     *
+     * @param section e.g. the list key of the loaded section, null for none
+     * @return the previous section, to be restored when done.
+     */
+    public static String setCurrentSection(String section) {
+        String previous = sCurrentSection.get();
+        sCurrentSection.set(section);
+        return previous;
+    }
+
+    /**
+     * Start recording a request performed by the current thread.
+     */
+    static void beginRequest() {
+        sCurrentRequest.set(new Request());
+    }
+
+    /**
+     * Finish recording the request of the current thread and add it to its section.
+     *
+     * @param itemCount number of NewsObjects received, -1 if the request failed
+     */
+    static void endRequest(int itemCount) {
+        Request request = sCurrentRequest.get();
+        if (request == null) {
+            return;
+        }
+        sCurrentRequest.remove();
+
+        String section = sCurrentSection.get();
+        synchronized (sSections) {
+            SectionMetrics metrics = getSectionMetrics(section == null ? OTHER_SECTION : section);
+            for (int stage = 0; stage < STAGE_BIND; stage++) {
+                if (request.stageNanos[stage] > 0) {
+                    metrics.stages[stage].record(request.stageNanos[stage] / 1000);
+                }
+            }
+            metrics.bytes.record(request.bytes);
+            if (itemCount < 0) {
+                metrics.failures++;
+            } else {
+                metrics.items.record(itemCount);
+            }
+        }
+    }
+
+    /**
+     * Add time spent in a stage to the request of the current thread, if one is recorded.
+     *
+     * @param stage one of the STAGE_ constants, but {@link #STAGE_BIND}
+     * @param nanos time spent, from {@link System#nanoTime()}
+     */
+    static void addStageTime(int stage, long nanos) {
+        Request request = sCurrentRequest.get();
+        if (request != null) {
+            request.stageNanos[stage] += nanos;
+        }
+    }
+
+    /**
+     * Get the time spent in a stage so far by the request of the current thread.
+     *
+     * @return time in nanoseconds, 0 if no request is recorded.
+     */
+    static long getStageTime(int stage) {
+        Request request = sCurrentRequest.get();
+        return request == null ? 0 : request.stageNanos[stage];
+    }
+
+    /**
+     * Add downloaded bytes to the counter of the current thread, and to its request if one
+     * is recorded.
+     */
+    static void addBytes(long bytes) {
+        sThreadBytes.get()[0] += bytes;
+        Request request = sCurrentRequest.get();
+        if (request != null) {
+            request.bytes += bytes;
+        }
+    }
+
+    /**
+     * Return the bytes downloaded by the current thread since the last call, and reset the counter.
+     */
+    static long takeThreadBytes() {
+        long[] counter = sThreadBytes.get();
+        long bytes = counter[0];
+        counter[0] = 0;
+        return bytes;
+    }
+
+    /**
+     * Start a new session of section loads, forgetting the loads recorded so far.
+     */
+    public static synchronized void startSession() {
+        sLoadedSections.clear();
+        sLoads = 0;
+        sTotalBytes = 0;
+        sTotalCpuMillis = 0;
+    }
+
+    /**
+     * Record a finished load of a section.
+     *
+     * @param sectionIndex index of the section in the {@link SectionRegistry}
+     * @param bytes        downloaded by the load
+     * @param cpuMillis    CPU time used by the load
+     */
+    public static synchronized void recordLoad(int sectionIndex, long bytes, long cpuMillis) {
+        sLoadedSections.put(sectionIndex, true);
+        sLoads++;
+        sTotalBytes += bytes;
+        sTotalCpuMillis += cpuMillis;
+    }
+
+    /**
+     * Record the binding of a list item of a section.
+     *
+     * @param section whose list the item belongs to, null for none
+     * @param nanos   time taken, from {@link System#nanoTime()}
+     */
+    static void recordBind(String section, long nanos) {
+        synchronized (sSections) {
+            getSectionMetrics(section == null ? OTHER_SECTION : section)
+                    .stages[STAGE_BIND].record(nanos / 1000);
+        }
+    }
+
+    /**
+     * Start a trace section, which must be ended by {@link #endTrace()} on the same thread.
+     *
+     * @param name of the section, e.g. "News:parse" - a constant, as list item binds must
+     *             not allocate
+     */
+    static void beginTrace(String name) {
+        TraceCompat.beginSection(name);
+    }
+
+    /**
+     * End the last trace section started by the current thread.
+     */
+    static void endTrace() {
+        TraceCompat.endSection();
+    }
+
+    /**
+     * Forget everything recorded so far.
+     */
+    public static void reset() {
+        synchronized (sSections) {
+            sSections.clear();
+        }
+        startSession();
+    }
+
+    /**
+     * Return the cost of the loads of this session and a one line summary of every stage of
+     * every section, e.g. for the log.
+     */
+    public static String getReport() {
+        return buildReport(false);
+    }
+
+    /**
+     * Return the cost of the loads of this session and a full report with the histogram of
+     * every stage of every section. Times are in microseconds, bytes are as received over
+     * the wire (compressed).
+     */
+    public static String dump() {
+        return buildReport(true);
+    }
+
+    /**
+     * Return what the loads of this session cost, and what loading the sections which were
+     * never shown would have cost on top (estimated from the average load).
+     */
+    private static synchronized String getSessionReport() {
+        int sectionCount = SectionRegistry.size();
+        int loadedSections = sLoadedSections.size();
+        int skippedSections = sectionCount - loadedSections;
+
+        long averageBytes = sLoads == 0 ? 0 : sTotalBytes / sLoads;
+        long averageCpuMillis = sLoads == 0 ? 0 : sTotalCpuMillis / sLoads;
+
+        return String.format(Locale.US,
+                "Loaded %d of %d sections in %d loads: %d bytes, %d ms CPU. "
+                        + "Saved by not loading %d sections: ~%d bytes, ~%d ms CPU.",
+                loadedSections, sectionCount, sLoads, sTotalBytes, sTotalCpuMillis,
+                skippedSections, skippedSections * averageBytes,
+                skippedSections * averageCpuMillis);
+    }
+
+    private static String buildReport(boolean withBars) {
+        StringBuilder out = new StringBuilder(getSessionReport()).append('\n');
+        synchronized (sSections) {
+            if (sSections.isEmpty()) {
+                return out.append("No requests").toString();
+            }
+            for (Map.Entry<String, SectionMetrics> entry : sSections.entrySet()) {
+                SectionMetrics metrics = entry.getValue();
+                out.append(entry.getKey()).append(": ")
+                        .append(metrics.items.getCount() + metrics.failures)
+                        .append(" requests, ").append(metrics.failures).append(" failed, ")
+                        .append(metrics.items.getSum()).append(" items, ")
+                        .append(metrics.bytes.getSum()).append(" bytes\n");
+                for (int stage = 0; stage < STAGE_NAMES.length; stage++) {
+                    Histogram histogram = metrics.stages[stage];
+                    if (histogram.getCount() == 0) {
+                        continue;
+                    }
+                    out.append(String.format(Locale.US, " %-8s us ", STAGE_NAMES[stage]))
+                            .append(histogram.getSummary()).append('\n');
+                    if (withBars) {
+                        histogram.appendBars(out);
+                    }
+                }
+                out.append(String.format(Locale.US, " %-8s    ", "bytes"))
+                        .append(metrics.bytes.getSummary()).append('\n');
+                out.append(String.format(Locale.US, " %-8s    ", "items"))
+                        .append(metrics.items.getSummary()).append('\n');
+            }
+        }
+        return out.toString();
+    }
+
+    /**
+     * Get the metrics of a section, creating them on first use. Call only while holding
+     * sSections.
+     */
+    private static SectionMetrics getSectionMetrics(String section) {
+        SectionMetrics metrics = sSections.get(section);
+        if (metrics == null) {
+            metrics = new SectionMetrics();
+            sSections.put(section, metrics);
+        }
+        return metrics;
+    }
+
+    /**
+     * Stage times and size of a request in progress.
+     */
+    private static final class Request {
+        final long[] stageNanos = new long[STAGE_BIND];
+        long bytes;
+    }
+
+    /**
+     * Histograms of all requests and binds of a section.
+     */
+    private static final class SectionMetrics {
+        final Histogram[] stages = new Histogram[STAGE_NAMES.length];
+        final Histogram bytes = new Histogram();
+        final Histogram items = new Histogram();
+        int failures;
+
+        SectionMetrics() {
+            for (int stage = 0; stage < stages.length; stage++) {
+                stages[stage] = new Histogram();
+            }
+        }
+    }
+}
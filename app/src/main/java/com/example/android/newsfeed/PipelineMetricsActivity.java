@@ -0,0 +1,51 @@
+package com.example.android.newsfeed;
+
+import android.os.Bundle;
+import android.support.v7.app.AppCompatActivity;
+import android.view.Menu;
+import android.view.MenuItem;
+import android.widget.TextView;
+
+/**
+ * Debug screen showing the stage timings, payload sizes and item counts recorded by
+ * {@link PipelineMetrics}, as histograms per section. Reached from the overflow menu of
+ * {@link NewsFeedActivity} in debug builds.
+ */
+
+public class PipelineMetricsActivity extends AppCompatActivity {
+
+    /**
+     * Shows the report
+     */
+    private TextView mMetricsTextView;
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_pipeline_metrics);
+        mMetricsTextView = findViewById(R.id.textview_metrics);
+    }
+
+    @Override
+    protected void onResume() {
+        super.onResume();
+        // Show what has been recorded up to now, e.g. after going back and swiping the tabs.
+        mMetricsTextView.setText(PipelineMetrics.dump());
+    }
+
+    @Override
+    public boolean onCreateOptionsMenu(Menu menu) {
+        getMenuInflater().inflate(R.menu.menu_pipeline_metrics, menu);
+        return true;
+    }
+
+    @Override
+    public boolean onOptionsItemSelected(MenuItem item) {
+        if (item.getItemId() == R.id.action_reset_metrics) {
+            PipelineMetrics.reset();
+            mMetricsTextView.setText(PipelineMetrics.dump());
+            return true;
+        }
+        return super.onOptionsItemSelected(item);
+    }
+}
@@ -1,21 +1,19 @@
 package com.example.android.newsfeed;
 
-import android.text.TextUtils;
+import android.support.annotation.VisibleForTesting;
 import android.util.Log;
 
-import org.json.JSONArray;
-import org.json.JSONException;
-import org.json.JSONObject;
-
-import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.net.HttpURLConnection;
 import java.net.MalformedURLException;
 import java.net.URL;
-import java.nio.charset.Charset;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 /**
  * Helper methods related to requesting and receiving NewsObjects data from Guardian API.
@@ -28,6 +26,50 @@ public final class QueryUtils {
      */
     public static final String LOG_TAG = QueryUtils.class.getSimpleName();
 
+    /**
+     * Maximum number of request URLs for which the last response is remembered
+     */
+    private static final int MAX_REMEMBERED_RESPONSES = 32;
+
+    /**
+     * Validators (ETag, Last-Modified) and parsed NewsObjects of the last successful
+     * response for each request URL, used to revalidate with conditional requests.
+     * Access only while holding the map's lock.
+     */
+    private static final Map<String, RememberedResponse> sLastResponses =
+            new LinkedHashMap<String, RememberedResponse>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, RememberedResponse> eldest) {
+                    return size() > MAX_REMEMBERED_RESPONSES;
+                }
+            };
+
+    /**
+     * How long (in milliseconds) the parsed NewsObjects of a request URL are reused
+     * instead of requesting the URL again
+     */
+    private static final long RESULT_MAX_AGE = 30 * 1000;
+
+    /**
+     * Maximum number of request URLs for which the parsed NewsObjects are kept
+     */
+    private static final int MAX_RECENT_RESULTS = 16;
+
+    /**
+     * Shares one request (and parse) between all callers asking for the same URL at the same
+     * time, e.g. after a rotation or when a fragment is recreated, and reuses the result for
+     * {@link #RESULT_MAX_AGE}.
+     */
+    private static final RequestCoalescer<List<NewsObject>> sRequests =
+            new RequestCoalescer<>(new RequestCoalescer.Request<List<NewsObject>>() {
+                @Override
+                public List<NewsObject> execute(String requestUrl) {
+                    List<NewsObject> newsObjects = requestNewsObjectData(requestUrl);
+                    // The shared result must not be changed by any of its callers.
+                    return newsObjects == null ? null : Collections.unmodifiableList(newsObjects);
+                }
+            }, RESULT_MAX_AGE, MAX_RECENT_RESULTS);
+
     /**
      * Create a private constructor because no one should ever create a {@link QueryUtils} object.
      * This class is only meant to hold static variables and methods, which can be accessed
@@ -38,25 +80,72 @@ public final class QueryUtils {
 
     /**
      * Query the Guardian API and return an {@link ArrayList<NewsObject>} object to represent
-     * NewsObjects to show to the user.
+     * NewsObjects to show to the user. Callers asking for the same URL at the same time, or
+     * shortly after each other, share a single request.
      */
     public static ArrayList<NewsObject> fetchNewsObjectData(String requestUrl) {
+        List<NewsObject> newsObjects = sRequests.get(requestUrl);
+        // Every caller gets its own list.
+        return newsObjects == null ? null : new ArrayList<>(newsObjects);
+    }
+
+    /**
+     * Return the NewsObjects of the last successful response of a request URL, e.g. to show
+     * instead of nothing when {@link #fetchNewsObjectData(String)} failed. They may be
+     * outdated, so they are neither stored nor cached as a fresh result.
+     *
+     * @return a copy of the NewsObjects, or null if the URL has not been loaded before.
+     */
+    public static ArrayList<NewsObject> fetchStaleNewsObjectData(String requestUrl) {
+        URL url = createUrl(requestUrl);
+        if (url == null) {
+            return null;
+        }
+        RememberedResponse lastResponse;
+        synchronized (sLastResponses) {
+            lastResponse = sLastResponses.get(url.toString());
+        }
+        if (lastResponse == null) {
+            return null;
+        }
+        Log.d(LOG_TAG, "Using the last successful response instead: " + requestUrl);
+        return new ArrayList<>(lastResponse.newsObjects);
+    }
+
+    /**
+     * Forget the shared results and the last response of every URL, so the next request
+     * for any URL is made again, unconditionally.
+     */
+    @VisibleForTesting
+    public static void clearRecentResults() {
+        sRequests.clear();
+        synchronized (sLastResponses) {
+            sLastResponses.clear();
+        }
+    }
+
+    /**
+     * Query the Guardian API, bypassing the results shared by {@link #fetchNewsObjectData(String)}.
+     */
+    private static ArrayList<NewsObject> requestNewsObjectData(String requestUrl) {
         // Create URL object
         URL url = createUrl(requestUrl);
 
-        // Perform HTTP request to the URL and receive a JSON response back
-        String jsonResponse = null;
+        // Perform HTTP request to the URL and parse the JSON response while it is being received
+        ArrayList<NewsObject> newsObjects = null;
+        PipelineMetrics.beginRequest();
+        PipelineMetrics.beginTrace("News:request");
         try {
-            jsonResponse = makeHttpRequest(url);
+            newsObjects = makeHttpRequest(url);
         } catch (IOException e) {
             Log.e(LOG_TAG, "Error closing input stream", e);
+        } finally {
+            PipelineMetrics.endTrace();
+            PipelineMetrics.endRequest(newsObjects == null ? -1 : newsObjects.size());
         }
 
-        // Extract relevant fields from the JSON response and create an {@link ArrayList<NewsObject>} object
-        ArrayList<NewsObject> newsObject = extractNewsObjectsFromJson(jsonResponse);
-
         // Return the {@link ArrayList<NewsObject>}
-        return newsObject;
+        return newsObjects;
     }
 
     /**
@@ -74,149 +163,132 @@ public final class QueryUtils {
 
 
     /**
-     * Make an HTTP request to the given URL and return a String as the response.
+     * Make an HTTP request to the given URL and return the list of {@link NewsObject}s
+     * parsed straight from the response stream.
+     * <p>
+     * The response is requested gzip compressed by {@link NewsHttpClient}. If the same URL
+     * has been loaded before, the request is made conditional (If-None-Match / If-Modified-Since)
+     * and a "304 Not Modified" answer reuses the previously parsed list instead of downloading
+     * it again. If the API cannot be reached at the moment (e.g. rate limited), even after
+     * {@link NewsHttpClient} has retried the request, null is returned - callers which rather
+     * show outdated news ask for them with {@link #fetchStaleNewsObjectData(String)}.
      */
-    private static String makeHttpRequest(URL url) throws IOException {
-        String jsonResponse = "";
+    private static ArrayList<NewsObject> makeHttpRequest(URL url) throws IOException {
+        ArrayList<NewsObject> newsObjects = null;
 
         // If the URL is null, then return early.
         if (url == null) {
-            return jsonResponse;
+            return newsObjects;
+        }
+
+        String urlKey = url.toString();
+        RememberedResponse lastResponse;
+        synchronized (sLastResponses) {
+            lastResponse = sLastResponses.get(urlKey);
         }
 
-        HttpURLConnection urlConnection = null;
-        InputStream inputStream = null;
+        // Revalidate the last response instead of downloading it again.
+        Map<String, String> requestHeaders = new HashMap<>();
+        if (lastResponse != null) {
+            if (lastResponse.eTag != null) {
+                requestHeaders.put("If-None-Match", lastResponse.eTag);
+            }
+            if (lastResponse.lastModified != null) {
+                requestHeaders.put("If-Modified-Since", lastResponse.lastModified);
+            }
+        }
+
+        HttpResponse response = null;
         try {
-            urlConnection = (HttpURLConnection) url.openConnection();
-            urlConnection.setReadTimeout(10000 /* milliseconds */);
-            urlConnection.setConnectTimeout(15000 /* milliseconds */);
-            urlConnection.setRequestMethod("GET");
-            urlConnection.connect();
-
-            // If the request was successful (response code 200),
-            // then read the input stream and parse the response.
-            if (urlConnection.getResponseCode() == 200) {
-                inputStream = urlConnection.getInputStream();
-                jsonResponse = readFromStream(inputStream);
+            // All requests share one client, so keep-alive connections are reused.
+            response = NewsHttpClient.getInstance().get(url, requestHeaders);
+
+            int responseCode = response.getCode();
+            if (responseCode == HttpURLConnection.HTTP_OK) {
+                // If the request was successful (response code 200),
+                // then parse the input stream as it arrives.
+                long parseStartTime = System.nanoTime();
+                long downloadTime = PipelineMetrics.getStageTime(PipelineMetrics.STAGE_DOWNLOAD);
+                PipelineMetrics.beginTrace("News:parse");
+                try {
+                    newsObjects = extractNewsObjectsFromStream(response.getBody());
+                } finally {
+                    PipelineMetrics.endTrace();
+                }
+                // Waiting for the bytes parsed is counted as download, the rest (decompressing
+                // and parsing them) as parse.
+                downloadTime = PipelineMetrics.getStageTime(PipelineMetrics.STAGE_DOWNLOAD)
+                        - downloadTime;
+                PipelineMetrics.addStageTime(PipelineMetrics.STAGE_PARSE,
+                        System.nanoTime() - parseStartTime - downloadTime);
+
+                // Remember the validators, so the next request for this URL can be conditional.
+                String eTag = response.getHeader("ETag");
+                String lastModified = response.getHeader("Last-Modified");
+                if (newsObjects != null && (eTag != null || lastModified != null)) {
+                    synchronized (sLastResponses) {
+                        sLastResponses.put(urlKey,
+                                new RememberedResponse(eTag, lastModified, newsObjects));
+                    }
+                }
+            } else if (responseCode == HttpURLConnection.HTTP_NOT_MODIFIED && lastResponse != null) {
+                // Nothing has changed since the last request - reuse the parsed NewsObjects.
+                Log.d(LOG_TAG, "Not modified: " + urlKey);
+                newsObjects = new ArrayList<>(lastResponse.newsObjects);
             } else {
-                Log.e(LOG_TAG, "Error response code: " + urlConnection.getResponseCode());
+                Log.e(LOG_TAG, "Error response code: " + responseCode);
             }
+        } catch (CircuitOpenException e) {
+            Log.w(LOG_TAG, e.getMessage());
         } catch (IOException e) {
             Log.e(LOG_TAG, "Problem retrieving the JSON results.", e);
         } finally {
-            if (urlConnection != null) {
-                urlConnection.disconnect();
-            }
-            if (inputStream != null) {
-                // Closing the input stream could throw an IOException, which is why
+            if (response != null) {
+                // Closing the response could throw an IOException, which is why
                 // the makeHttpRequest(URL url) method signature specifies than an IOException
-                // could be thrown.
-                inputStream.close();
+                // could be thrown. It does not disconnect, so the connection can be reused.
+                response.close();
             }
         }
-        return jsonResponse;
+        return newsObjects;
     }
 
     /**
-     * Convert the {@link InputStream} into a String which contains the
-     * whole JSON response from the server.
+     * Return an {@link ArrayList<NewsObject>}, a list of {@link NewsObject} objects
+     * that has been built up by walking the JSON response token by token
+     * (see {@link NewsParser}).
      */
-    private static String readFromStream(InputStream inputStream) throws IOException {
-        StringBuilder output = new StringBuilder();
-        if (inputStream != null) {
-            InputStreamReader inputStreamReader = new InputStreamReader(inputStream, Charset.forName("UTF-8"));
-            BufferedReader reader = new BufferedReader(inputStreamReader);
-            String line = reader.readLine();
-            while (line != null) {
-                output.append(line);
-                line = reader.readLine();
-            }
-        }
-        return output.toString();
-    }
-
-    /**
-     * Return an {@link ArrayList<NewsObject>} , a list of {@link NewsObject} objects
-     * that has been built up from parsing the input NewsObject JSON string response.
-     */
-    private static ArrayList<NewsObject> extractNewsObjectsFromJson(String newsObjectJSON) {
-        // If the JSON string is empty or null, then return early.
-        if (TextUtils.isEmpty(newsObjectJSON)) {
+    static ArrayList<NewsObject> extractNewsObjectsFromStream(InputStream inputStream) {
+        // If there is no stream, then return early.
+        if (inputStream == null) {
             return null;
         }
 
-        // Create an empty ArrayList that we can start adding newsObjects to
-        ArrayList<NewsObject> newsObjects = new ArrayList<>();
-
-        // Try to parse the JSON response string. If there's a problem with the way the JSON
-        // is formatted, a JSONException exception object will be thrown.
+        // Try to parse the JSON response. If there's a problem with the way the JSON
+        // is formatted (or the connection drops), an IOException will be thrown.
         // Catch the exception so the app doesn't crash, and print the error message to the logs.
         try {
-
-            // Parse the response given by newsObjectJSON string and
-            // build up a list of NewsObject objects with the corresponding data.
-            JSONObject rootJsonObject = new JSONObject(newsObjectJSON);
-            JSONObject rootJsonResponse = rootJsonObject.getJSONObject("response");
-
-            // Extract the JSONArray associated with the key called "results",
-            // which represents a list of results (NewsObjects).
-            JSONArray newsObjectResultsArray = rootJsonResponse.optJSONArray("results");
-
-            // For each newsObject in the newsObjectArray, create a {@link NewsObject} object
-            for (int i = 0; i < newsObjectResultsArray.length(); i++) {
-
-                // Get a single newsObject at position 'i' within the list of newsObjects
-                JSONObject currentNewsObject = newsObjectResultsArray.optJSONObject(i);
-
-                // For a given newsObject, extract the Strings associated with the
-                // keys called "webTitle", "sectionName", "webPublicationDate" and
-                // "webUrl" which represents a title, date and link for that newsObject.
-                // Received date format is: "yyyy-MM-dd'T'HH:mm:ss'Z'"
-                String title = currentNewsObject.getString("webTitle");
-                String category = currentNewsObject.getString("sectionName");
-                String publishedDate = currentNewsObject.getString("webPublicationDate");
-                String newsUrl = currentNewsObject.getString("webUrl");
-
-                // Get array of tags, which should contain 'contributor' (author) if available.
-                JSONArray tagsArray = currentNewsObject.getJSONArray("tags");
-
-                StringBuilder authorBuilder = new StringBuilder();
-                for (int j = 0; j < tagsArray.length(); j++) {
-                    JSONObject currentTagsObject = tagsArray.getJSONObject(j);
-                    if (currentTagsObject.getString("type").equalsIgnoreCase("contributor")) {
-                        if (authorBuilder.toString().equals("")) {
-                            authorBuilder.append(currentTagsObject.getString("webTitle"));
-                        } else {
-                            authorBuilder.append(", ");
-                            authorBuilder.append(currentTagsObject.getString("webTitle"));
-                        }
-                    }
-                }
-
-                NewsObject nextNewsObjectObject;
-                if (authorBuilder.toString().isEmpty()) {
-                    // Create a new {@link NewsObject} object with the title, category,
-                    // publication date and URL info from the JSON response.
-                    nextNewsObjectObject = new NewsObject(title, category, publishedDate, newsUrl);
-                } else {
-                    // Create a new {@link NewsObject} object with the title, category, author,
-                    // publication date and URL info from the JSON response.
-                    String author = authorBuilder.toString();
-                    nextNewsObjectObject = new NewsObject(title, category, publishedDate, newsUrl, author);
-                }
-
-                // Add the new {@link NewsObject} to the list of newsObjects.
-                newsObjects.add(nextNewsObjectObject);
-            }
-            // Return the list of newsObjects {@link ArrayList<NewsObject>}
-            return newsObjects;
-
-        } catch (JSONException e) {
-            // If an error is thrown when executing any of the above statements in the "try" block,
-            // catch the exception here, so the app doesn't crash. Print a log message
-            // with the message from the exception.
+            return NewsParser.parse(inputStream);
+        } catch (IOException | IllegalStateException e) {
+            // JsonReader reports unexpected tokens with IllegalStateException and
+            // malformed input with IOException - both mean the response is unusable.
             Log.e(LOG_TAG, "Problem parsing the NewsObject JSON results", e);
         }
         return null;
     }
+
+    /**
+     * Validators and parsed NewsObjects of a successful response.
+     */
+    private static final class RememberedResponse {
+        final String eTag;
+        final String lastModified;
+        final List<NewsObject> newsObjects;
+
+        RememberedResponse(String eTag, String lastModified, List<NewsObject> newsObjects) {
+            this.eTag = eTag;
+            this.lastModified = lastModified;
+            this.newsObjects = Collections.unmodifiableList(new ArrayList<>(newsObjects));
+        }
+    }
 }
@@ -0,0 +1,52 @@
+package com.example.android.newsfeed;
+
+import android.text.format.DateUtils;
+import android.util.LongSparseArray;
+
+/**
+ * Formats publication dates relative to now (e.g. "5 minutes ago") for the list items.
+ * <p>
+ * Labels only change when a new minute starts, so they are computed once per minute and
+ * date and then taken from a cache. Binding a list item while scrolling therefore does not
+ * allocate anything. Only use it from the main thread.
+ */
+
+public class RelativeTimeFormatter {
+
+    /**
+     * Labels computed in the current minute, keyed by publication time
+     */
+    private final LongSparseArray<String> mLabels = new LongSparseArray<>();
+
+    /**
+     * The minute (since the epoch) the cached labels were computed in
+     */
+    private long mCurrentMinute = -1;
+
+    /**
+     * Return the label for the given publication time, relative to now.
+     *
+     * @param publishedTime publication date in milliseconds since the epoch
+     * @return label, e.g. "5 minutes ago", or an empty string if the time is unknown.
+     */
+    public String format(long publishedTime) {
+        if (publishedTime == NewsObject.UNKNOWN_TIME) {
+            return "";
+        }
+
+        long minute = System.currentTimeMillis() / DateUtils.MINUTE_IN_MILLIS;
+        if (minute != mCurrentMinute) {
+            // A new minute has started, so all labels may have changed.
+            mLabels.clear();
+            mCurrentMinute = minute;
+        }
+
+        String label = mLabels.get(publishedTime);
+        if (label == null) {
+            label = DateUtils.getRelativeTimeSpanString(publishedTime,
+                    minute * DateUtils.MINUTE_IN_MILLIS, DateUtils.MINUTE_IN_MILLIS).toString();
+            mLabels.put(publishedTime, label);
+        }
+        return label;
+    }
+}
@@ -0,0 +1,184 @@
+package com.example.android.newsfeed;
+
+import android.util.Log;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Makes concurrent and repeated requests for the same key share one result.
+ * <p>
+ * The first caller asking for a key performs the request on its own (background) thread;
+ * callers asking for the same key while it is in flight wait for it and get the same result.
+ * A successful (non-null) result is then handed out for {@link #mMaxAge} milliseconds
+ * without performing the request again.
+ *
+ * @param <V> type of the results
+ */
+
+public final class RequestCoalescer<V> {
+
+    /**
+     * Tag for log messages
+     */
+    private static final String LOG_TAG = RequestCoalescer.class.getSimpleName();
+
+    /**
+     * A request performed by the {@link RequestCoalescer}.
+     *
+     * @param <V> type of the result
+     */
+    public interface Request<V> {
+        /**
+         * Perform the request for the given key.
+         *
+         * @return the result, or null if the request failed
+         */
+        V execute(String key);
+    }
+
+    /**
+     * Performs the requests
+     */
+    private final Request<V> mRequest;
+
+    /**
+     * How long (in milliseconds) a result is handed out after its request started
+     */
+    private final long mMaxAge;
+
+    /**
+     * Maximum number of results kept
+     */
+    private final int mMaxEntries;
+
+    /**
+     * Requests in flight and recent results, by key. Guarded by this map.
+     */
+    private final Map<String, Entry<V>> mEntries = new HashMap<>();
+
+    /**
+     * Create a new {@link RequestCoalescer}.
+     *
+     * @param request    performing the requests
+     * @param maxAge     how long (in milliseconds) a result is reused
+     * @param maxEntries maximum number of results kept
+     */
+    public RequestCoalescer(Request<V> request, long maxAge, int maxEntries) {
+        mRequest = request;
+        mMaxAge = maxAge;
+        mMaxEntries = maxEntries;
+    }
+
+    /**
+     * Return the result for the given key: the recent or in-flight one if there is one,
+     * or a new one otherwise. Must not be called on the main thread.
+     *
+     * @return the result, or null if the request failed or the caller was interrupted
+     */
+    public V get(final String key) {
+        Entry<V> entry;
+        boolean start = false;
+        synchronized (mEntries) {
+            long now = System.currentTimeMillis();
+            entry = mEntries.get(key);
+            if (entry == null || entry.isExpired(now, mMaxAge)) {
+                evictExpired(now);
+                entry = new Entry<>(new FutureTask<>(new Callable<V>() {
+                    @Override
+                    public V call() {
+                        return mRequest.execute(key);
+                    }
+                }), now);
+                mEntries.put(key, entry);
+                start = true;
+            } else {
+                Log.d(LOG_TAG, (entry.task.isDone() ? "Reusing result: " : "Joining request: ")
+                        + key);
+            }
+        }
+
+        // The caller which created the task runs it on its own thread.
+        if (start) {
+            entry.task.run();
+        }
+
+        V result;
+        try {
+            result = entry.task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e) {
+            Log.e(LOG_TAG, "Problem performing request: " + key, e);
+            result = null;
+        }
+
+        // Failures are only shared with the callers which waited for them.
+        if (start && result == null) {
+            synchronized (mEntries) {
+                if (mEntries.get(key) == entry) {
+                    mEntries.remove(key);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Forget all results, so the next request for any key is performed again.
+     */
+    public void clear() {
+        synchronized (mEntries) {
+            mEntries.clear();
+        }
+    }
+
+    /**
+     * Remove the finished entries which are too old to be handed out, and the oldest ones
+     * if there are still more than {@link #mMaxEntries}. Call only while holding mEntries.
+     */
+    private void evictExpired(long now) {
+        Iterator<Entry<V>> iterator = mEntries.values().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().isExpired(now, mMaxAge)) {
+                iterator.remove();
+            }
+        }
+        while (mEntries.size() >= mMaxEntries) {
+            String oldestKey = null;
+            long oldestTime = Long.MAX_VALUE;
+            for (Map.Entry<String, Entry<V>> entry : mEntries.entrySet()) {
+                if (entry.getValue().startTime < oldestTime) {
+                    oldestKey = entry.getKey();
+                    oldestTime = entry.getValue().startTime;
+                }
+            }
+            mEntries.remove(oldestKey);
+        }
+    }
+
+    /**
+     * A request in flight or its result, with its start time.
+     */
+    private static final class Entry<V> {
+        final FutureTask<V> task;
+        final long startTime;
+
+        Entry(FutureTask<V> task, long startTime) {
+            this.task = task;
+            this.startTime = startTime;
+        }
+
+        /**
+         * Whether the request has finished too long ago to hand out its result.
+         */
+        boolean isExpired(long now, long maxAge) {
+            return task.isDone() && now - startTime > maxAge;
+        }
+    }
+}
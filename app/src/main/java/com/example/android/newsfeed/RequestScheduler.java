@@ -0,0 +1,365 @@
+package com.example.android.newsfeed;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.SystemClock;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.URL;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Keeps the requests made with each API key within the Guardian API call limits.
+ * <p>
+ * Every API key has a token bucket refilled at {@link #REQUESTS_PER_SECOND}: a request
+ * takes a token before it is made, and waits in a queue while there is none. Waiting requests
+ * are served by priority - the news of the visible tab first, then pages loaded in advance,
+ * background sync last - and in arrival order within a priority. Requests whose load is
+ * cancelled while they wait are dropped from the queue, and background requests are refused
+ * once most of the daily quota has been used.
+ * <p>
+ * The requests of the quota day (in UTC) are counted in shared preferences, so the count
+ * carries over into a restarted process, e.g. the one of the background
+ * {@link NewsSyncJobService}. The count is read once a day and then written from memory, so it
+ * is not coordinated between processes running at the same time. Every component making
+ * requests calls {@link #init(Context)} first. Tests making requests which never reach the
+ * Guardian API use an API key of their own, so they do not spend the quota of the real one.
+ * <p>
+ * The priority of a request is the one set for the thread making it
+ * (see {@link #setCurrentPriority(int)}). Counters of all this are reported by
+ * {@link #getReport()}.
+ */
+
+public final class RequestScheduler {
+
+    /**
+     * Priority of requests for news the user is looking at
+     */
+    public static final int PRIORITY_VISIBLE = 0;
+
+    /**
+     * Priority of requests for news the user will probably look at soon (e.g. the next page)
+     */
+    public static final int PRIORITY_PREFETCH = 1;
+
+    /**
+     * Priority of requests nobody is waiting for (e.g. the background sync)
+     */
+    public static final int PRIORITY_BACKGROUND = 2;
+
+    /**
+     * Requests allowed per second and API key, on average
+     */
+    private static final double REQUESTS_PER_SECOND = 6;
+
+    /**
+     * Requests which can be made at once after a quiet period. Within any second at most
+     * BURST_SIZE + REQUESTS_PER_SECOND requests are made, below the 12 per second the
+     * Guardian allows for a developer key.
+     */
+    private static final int BURST_SIZE = 4;
+
+    /**
+     * Most requests made within any second and API key
+     */
+    private static final int MAX_REQUESTS_PER_SECOND = BURST_SIZE + (int) REQUESTS_PER_SECOND;
+
+    /**
+     * Requests allowed per day and API key
+     */
+    private static final int DAILY_QUOTA = 5000;
+
+    /**
+     * Share of the daily quota background requests may use, the rest is kept for the user
+     */
+    private static final double BACKGROUND_QUOTA_SHARE = 0.8;
+
+    /**
+     * Length of a quota day, in milliseconds
+     */
+    private static final long DAY = 24 * 60 * 60 * 1000;
+
+    /**
+     * Name of the shared preferences holding the requests of the quota day
+     */
+    private static final String QUOTA_PREFERENCES = "request_quota";
+
+    /**
+     * Preference key prefixes of the quota day (days since the epoch, in UTC) and the number
+     * of requests made on it, followed by the API key
+     */
+    private static final String PREF_DAY = "day_";
+    private static final String PREF_REQUESTS = "requests_";
+
+    /**
+     * Priority of the requests made by the current thread
+     */
+    private static final ThreadLocal<Integer> sCurrentPriority = new ThreadLocal<Integer>() {
+        @Override
+        protected Integer initialValue() {
+            return PRIORITY_VISIBLE;
+        }
+    };
+
+    /**
+     * The shared instance
+     */
+    private static final RequestScheduler sInstance = new RequestScheduler();
+
+    /**
+     * Token buckets by API key. Guarded by this map.
+     */
+    private final Map<String, Bucket> mBuckets = new HashMap<>();
+
+    /**
+     * Where the requests of the quota day are counted, null until {@link #init(Context)}
+     */
+    private volatile SharedPreferences mQuotaPreferences;
+
+    private RequestScheduler() {
+    }
+
+    /**
+     * Read the requests made today (in any process) before the first request is made.
+     *
+     * @param context of the component making requests
+     */
+    public void init(Context context) {
+        if (mQuotaPreferences == null) {
+            mQuotaPreferences = context.getApplicationContext()
+                    .getSharedPreferences(QUOTA_PREFERENCES, Context.MODE_PRIVATE);
+        }
+    }
+
+    /**
+     * Get the shared {@link RequestScheduler}.
+     *
+     * @return scheduler instance.
+     */
+    public static RequestScheduler getInstance() {
+        return sInstance;
+    }
+
+    /**
+     * Set the priority of the requests made by the current thread from now on.
+     *
+     * @param priority one of the PRIORITY_ constants
+     * @return the previous priority, to be restored when done.
+     */
+    public static int setCurrentPriority(int priority) {
+        int previous = sCurrentPriority.get();
+        sCurrentPriority.set(priority);
+        return previous;
+    }
+
+    /**
+     * Wait until a request to the given URL may be made, with the priority of the current thread.
+     *
+     * @throws InterruptedIOException if the thread is interrupted while waiting
+     * @throws IOException            if the request is refused to save the daily quota
+     */
+    public void acquire(URL url) throws IOException {
+        getBucket(getApiKey(url)).acquire(sCurrentPriority.get());
+    }
+
+    /**
+     * Return a report of the counters of all API keys.
+     */
+    public String getReport() {
+        StringBuilder report = new StringBuilder();
+        synchronized (mBuckets) {
+            for (Map.Entry<String, Bucket> entry : mBuckets.entrySet()) {
+                if (report.length() > 0) {
+                    report.append('\n');
+                }
+                // Don't print whole API keys into logs.
+                String key = entry.getKey();
+                report.append("Key ").append(key.substring(0, Math.min(4, key.length())))
+                        .append("...: ").append(entry.getValue().getReport());
+            }
+        }
+        return report.length() == 0 ? "No requests" : report.toString();
+    }
+
+    /**
+     * Get the bucket of an API key, creating it on first use.
+     */
+    private Bucket getBucket(String apiKey) {
+        synchronized (mBuckets) {
+            Bucket bucket = mBuckets.get(apiKey);
+            if (bucket == null) {
+                bucket = new Bucket(apiKey);
+                mBuckets.put(apiKey, bucket);
+            }
+            return bucket;
+        }
+    }
+
+    /**
+     * Return the value of the "api-key" query parameter of the URL, or "" if there is none.
+     */
+    static String getApiKey(URL url) {
+        String query = url.getQuery();
+        if (query == null) {
+            return "";
+        }
+        for (String parameter : query.split("&")) {
+            if (parameter.startsWith("api-key=")) {
+                return parameter.substring("api-key=".length());
+            }
+        }
+        return "";
+    }
+
+    /**
+     * A request waiting for a token.
+     */
+    private static final class Waiter implements Comparable<Waiter> {
+        final int priority;
+        final long sequence;
+
+        Waiter(int priority, long sequence) {
+            this.priority = priority;
+            this.sequence = sequence;
+        }
+
+        @Override
+        public int compareTo(Waiter other) {
+            if (priority != other.priority) {
+                return priority < other.priority ? -1 : 1;
+            }
+            return sequence < other.sequence ? -1 : (sequence == other.sequence ? 0 : 1);
+        }
+    }
+
+    /**
+     * Token bucket, queue and counters of a single API key. All state is guarded by the bucket.
+     */
+    private final class Bucket {
+        private final String mApiKey;
+        private final PriorityQueue<Waiter> mQueue = new PriorityQueue<>();
+        private long mNextSequence;
+        private double mTokens = BURST_SIZE;
+        private long mLastRefillTime = SystemClock.elapsedRealtime();
+
+        // Requests of the current quota day, days since the epoch in UTC (-1 before the first)
+        private long mDay = -1;
+        private int mDayRequests;
+
+        // Counters
+        private final int[] mGranted = new int[PRIORITY_BACKGROUND + 1];
+        private int mDropped;
+        private int mRefused;
+        private long mTotalWaitTime;
+        private long mMaxWaitTime;
+        private int mMaxQueueLength;
+
+        // Times of the requests granted within the last second, and the most there have been
+        private final ArrayDeque<Long> mLastSecond = new ArrayDeque<>();
+        private int mPeakPerSecond;
+
+        Bucket(String apiKey) {
+            mApiKey = apiKey;
+        }
+
+        synchronized void acquire(int priority) throws IOException {
+            long startTime = SystemClock.elapsedRealtime();
+            startNewDayIfDue();
+            if (priority == PRIORITY_BACKGROUND
+                    && mDayRequests >= DAILY_QUOTA * BACKGROUND_QUOTA_SHARE) {
+                mRefused++;
+                throw new IOException("Daily quota reserved for the user, request refused");
+            }
+
+            Waiter waiter = new Waiter(priority, mNextSequence++);
+            mQueue.add(waiter);
+            mMaxQueueLength = Math.max(mMaxQueueLength, mQueue.size());
+            try {
+                while (true) {
+                    long now = SystemClock.elapsedRealtime();
+                    refill(now);
+                    if (mQueue.peek() == waiter) {
+                        if (mTokens >= 1) {
+                            mTokens--;
+                            mQueue.poll();
+                            recordGrant(priority, now, now - startTime);
+                            // The next waiter may take a token as well.
+                            notifyAll();
+                            return;
+                        }
+                        // First in line - wait for the next token.
+                        wait(Math.max(1, (long) Math.ceil((1 - mTokens) * 1000 / REQUESTS_PER_SECOND)));
+                    } else {
+                        // Wait for the requests before this one.
+                        wait();
+                    }
+                }
+            } catch (InterruptedException e) {
+                // The load has been cancelled, the request is not needed any more.
+                mQueue.remove(waiter);
+                mDropped++;
+                notifyAll();
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Cancelled while waiting for the rate limit");
+            }
+        }
+
+        private void refill(long now) {
+            mTokens = Math.min(BURST_SIZE,
+                    mTokens + (now - mLastRefillTime) * REQUESTS_PER_SECOND / 1000);
+            mLastRefillTime = now;
+        }
+
+        private void startNewDayIfDue() {
+            long today = System.currentTimeMillis() / DAY;
+            if (today == mDay) {
+                return;
+            }
+            mDay = today;
+            mDayRequests = 0;
+            SharedPreferences preferences = mQuotaPreferences;
+            if (preferences != null && preferences.getLong(PREF_DAY + mApiKey, -1) == today) {
+                // Requests made earlier today, before the process was restarted
+                mDayRequests = preferences.getInt(PREF_REQUESTS + mApiKey, 0);
+            }
+        }
+
+        private void recordGrant(int priority, long now, long waitTime) {
+            mGranted[priority]++;
+            mDayRequests++;
+            SharedPreferences preferences = mQuotaPreferences;
+            if (preferences != null) {
+                preferences.edit()
+                        .putLong(PREF_DAY + mApiKey, mDay)
+                        .putInt(PREF_REQUESTS + mApiKey, mDayRequests)
+                        .apply();
+            }
+            mTotalWaitTime += waitTime;
+            mMaxWaitTime = Math.max(mMaxWaitTime, waitTime);
+
+            mLastSecond.addLast(now);
+            while (now - mLastSecond.peekFirst() >= 1000) {
+                mLastSecond.removeFirst();
+            }
+            mPeakPerSecond = Math.max(mPeakPerSecond, mLastSecond.size());
+        }
+
+        synchronized String getReport() {
+            int granted = mGranted[PRIORITY_VISIBLE] + mGranted[PRIORITY_PREFETCH]
+                    + mGranted[PRIORITY_BACKGROUND];
+            return String.format(Locale.US,
+                    "%d requests (visible %d, prefetch %d, background %d), "
+                            + "peak %d/s of %d/s allowed, %d of %d today, "
+                            + "wait avg %d ms max %d ms, queue max %d, dropped %d, refused %d",
+                    granted, mGranted[PRIORITY_VISIBLE], mGranted[PRIORITY_PREFETCH],
+                    mGranted[PRIORITY_BACKGROUND], mPeakPerSecond, MAX_REQUESTS_PER_SECOND,
+                    mDayRequests, DAILY_QUOTA, granted == 0 ? 0 : mTotalWaitTime / granted,
+                    mMaxWaitTime, mMaxQueueLength, mDropped, mRefused);
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.example.android.newsfeed;
+
+import android.app.LoaderManager;
+import android.app.SearchManager;
+import android.content.Intent;
+import android.content.Loader;
+import android.os.Bundle;
+import android.support.v7.app.AppCompatActivity;
+import android.support.v7.widget.DividerItemDecoration;
+import android.support.v7.widget.LinearLayoutManager;
+import android.support.v7.widget.RecyclerView;
+import android.view.View;
+import android.widget.TextView;
+
+import java.util.List;
+
+/**
+ * Activity showing the news matching a search, started by the search box of
+ * {@link NewsFeedActivity}. Stored news are searched first (see {@link SearchLoader}).
+ */
+public class SearchActivity extends AppCompatActivity
+        implements LoaderManager.LoaderCallbacks<List<NewsObject>> {
+
+    /**
+     * Constant value for the search loader ID
+     */
+    private static final int SEARCH_LOADER_ID = 1;
+
+    /**
+     * Key of the search query in the loader arguments
+     */
+    private static final String ARG_QUERY = "query";
+
+    /**
+     * Adapter for the list of search results
+     */
+    private NewsAdapter mAdapter;
+
+    /**
+     * TextView that is displayed when the list is empty
+     */
+    private TextView mEmptyStateTextView;
+
+    /**
+     * Indicator shown while searching
+     */
+    private View mLoadingIndicator;
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.fragment_listingview);
+        RequestScheduler.getInstance().init(this);
+
+        // Show the article in a browser when its list item is clicked on.
+        mAdapter = new NewsAdapter(new NewsAdapter.OnNewsClickListener() {
+            @Override
+            public void onNewsClick(NewsObject newsObject) {
+                if (FragmentUtils.isMyInternetConnected(SearchActivity.this)) {
+                    startActivity(FragmentUtils.setOnNewsClickedAction(newsObject));
+                } else {
+                    FragmentUtils.displayNoInternetInfo(SearchActivity.this);
+                }
+            }
+        });
+        mAdapter.setMetricsSection(SearchLoader.SEARCH_LIST_KEY);
+
+        RecyclerView newsRecyclerView = findViewById(R.id.list);
+        LinearLayoutManager layoutManager = new LinearLayoutManager(this);
+        newsRecyclerView.setLayoutManager(layoutManager);
+        newsRecyclerView.addItemDecoration(
+                new DividerItemDecoration(this, layoutManager.getOrientation()));
+        newsRecyclerView.setAdapter(mAdapter);
+
+        mEmptyStateTextView = findViewById(R.id.empty_view);
+        new EmptyViewObserver(newsRecyclerView, mEmptyStateTextView);
+        mLoadingIndicator = findViewById(R.id.loading_indicator);
+
+        handleIntent(getIntent());
+    }
+
+    @Override
+    protected void onNewIntent(Intent intent) {
+        super.onNewIntent(intent);
+        setIntent(intent);
+        handleIntent(intent);
+    }
+
+    /**
+     * Start searching for the query of a search intent.
+     */
+    private void handleIntent(Intent intent) {
+        if (!Intent.ACTION_SEARCH.equals(intent.getAction())) {
+            return;
+        }
+        String query = intent.getStringExtra(SearchManager.QUERY);
+        setTitle(query);
+
+        Bundle args = new Bundle();
+        args.putString(ARG_QUERY, query);
+        // A new query replaces the results of the previous one.
+        getLoaderManager().restartLoader(SEARCH_LOADER_ID, args, this);
+    }
+
+    @Override
+    public Loader<List<NewsObject>> onCreateLoader(int id, Bundle args) {
+        mLoadingIndicator.setVisibility(View.VISIBLE);
+        mEmptyStateTextView.setText(R.string.fragment_textview_loading);
+        return new SearchLoader(this, args.getString(ARG_QUERY));
+    }
+
+    @Override
+    public void onLoadFinished(Loader<List<NewsObject>> loader, List<NewsObject> data) {
+        mLoadingIndicator.setVisibility(View.GONE);
+        mAdapter.submitList(data);
+        if (data == null || data.isEmpty()) {
+            mEmptyStateTextView.setText(FragmentUtils.isMyInternetConnected(this)
+                    ? R.string.search_textview_noresults
+                    : R.string.fragment_textview_nointernet);
+        }
+    }
+
+    @Override
+    public void onLoaderReset(Loader<List<NewsObject>> loader) {
+        mAdapter.submitList(null);
+    }
+}
@@ -0,0 +1,212 @@
+package com.example.android.newsfeed;
+
+import android.content.Context;
+import android.content.Loader;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Future;
+
+/**
+ * Loads the {@link NewsObject}s matching a search from the full-text index of {@link NewsStore}.
+ * <p>
+ * Only if fewer than {@link #MIN_STORED_RESULTS} stored articles match, and there is an
+ * Internet connection, the Guardian API is searched as well. Its results are stored (and
+ * thereby indexed), so searching for the same words again is answered offline.
+ * <p>
+ * Like {@link NewsLoader}, searches run on the shared {@link NewsExecutor}, and their requests
+ * are scheduled as visible ones, since the user is waiting for the results.
+ */
+
+public class SearchLoader extends Loader<List<NewsObject>> {
+
+    /**
+     * Tag for log messages
+     */
+    private static final String LOG_TAG = SearchLoader.class.getSimpleName();
+
+    /**
+     * Key of the list in {@link NewsStore} holding the results of searches in the Guardian API
+     */
+    public static final String SEARCH_LIST_KEY = "search";
+
+    /**
+     * Maximum number of results shown
+     */
+    private static final int MAX_RESULTS = 5 * FragmentUtils.PAGE_SIZE;
+
+    /**
+     * Number of matching stored articles below which the Guardian API is searched as well
+     */
+    private static final int MIN_STORED_RESULTS = FragmentUtils.PAGE_SIZE / 2;
+
+    /**
+     * Handler delivering results on the main thread
+     */
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+
+    /**
+     * Words to search for, as typed by the user
+     */
+    private final String mQuery;
+
+    /**
+     * The last delivered list of {@link NewsObject}s
+     */
+    private List<NewsObject> mNewsObjects;
+
+    /**
+     * The search currently running or waiting in the {@link NewsExecutor} queue
+     */
+    private SearchTask mTask;
+
+    /**
+     * Constructs a new {@link SearchLoader}.
+     *
+     * @param context of the activity
+     * @param query   to search for
+     */
+    public SearchLoader(Context context, String query) {
+        super(context);
+        mQuery = query;
+    }
+
+    @Override
+    protected void onStartLoading() {
+        if (mNewsObjects != null) {
+            deliverResult(mNewsObjects);
+        } else {
+            forceLoad();
+        }
+    }
+
+    /**
+     * Starts a new search on the {@link NewsExecutor}, cancelling the one in progress.
+     */
+    @Override
+    protected void onForceLoad() {
+        super.onForceLoad();
+        cancelLoad();
+        mTask = new SearchTask();
+        mTask.mFuture = NewsExecutor.get().submit(mTask);
+    }
+
+    /**
+     * Cancels the search in progress. Its result, if any, is never delivered.
+     */
+    @Override
+    protected boolean onCancelLoad() {
+        if (mTask == null) {
+            return false;
+        }
+        boolean cancelled = mTask.mFuture.cancel(true);
+        mTask = null;
+        return cancelled;
+    }
+
+    /**
+     * Called on the main thread when a search has finished.
+     */
+    private void onLoadComplete(SearchTask task, List<NewsObject> data) {
+        if (task != mTask) {
+            // The search was cancelled or replaced by a newer one.
+            return;
+        }
+        mTask = null;
+        deliverResult(data);
+    }
+
+    /**
+     * Called on a background thread to search the NewsObjects.
+     */
+    public List<NewsObject> loadInBackground() {
+        List<NewsObject> results = NewsStore.search(getContext(), mQuery, MAX_RESULTS);
+        if (results != null && results.size() >= MIN_STORED_RESULTS) {
+            return results;
+        }
+        if (!FragmentUtils.isMyInternetConnected(getContext())) {
+            return results;
+        }
+
+        Log.d(LOG_TAG, "Too few stored results, searching online: " + mQuery);
+        List<NewsObject> onlineResults =
+                QueryUtils.fetchNewsObjectData(FragmentUtils.buildSearchRequestUrl(mQuery));
+        if (onlineResults == null || onlineResults.isEmpty()) {
+            return results;
+        }
+        NewsStore.insert(getContext(), SEARCH_LIST_KEY, onlineResults);
+
+        // Stored matches first, then the online results which are not among them.
+        if (results == null) {
+            return onlineResults;
+        }
+        Set<String> urls = new HashSet<>();
+        for (NewsObject newsObject : results) {
+            urls.add(newsObject.getNewsUrl());
+        }
+        for (NewsObject newsObject : onlineResults) {
+            if (results.size() >= MAX_RESULTS) {
+                break;
+            }
+            if (urls.add(newsObject.getNewsUrl())) {
+                results.add(newsObject);
+            }
+        }
+        return results;
+    }
+
+    @Override
+    public void deliverResult(List<NewsObject> data) {
+        if (isReset()) {
+            return;
+        }
+        mNewsObjects = data;
+        if (isStarted()) {
+            super.deliverResult(data);
+        }
+    }
+
+    @Override
+    protected void onStopLoading() {
+        cancelLoad();
+    }
+
+    @Override
+    protected void onReset() {
+        onStopLoading();
+        mNewsObjects = null;
+    }
+
+    /**
+     * A single run of {@link #loadInBackground()} on the {@link NewsExecutor}.
+     */
+    private final class SearchTask implements Runnable {
+        Future<?> mFuture;
+
+        @Override
+        public void run() {
+            // The user is waiting for the results.
+            int previousPriority =
+                    RequestScheduler.setCurrentPriority(RequestScheduler.PRIORITY_VISIBLE);
+            String previousSection = PipelineMetrics.setCurrentSection(SEARCH_LIST_KEY);
+            final List<NewsObject> data;
+            try {
+                data = loadInBackground();
+            } finally {
+                PipelineMetrics.setCurrentSection(previousSection);
+                RequestScheduler.setCurrentPriority(previousPriority);
+            }
+
+            mHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    onLoadComplete(SearchTask.this, data);
+                }
+            });
+        }
+    }
+}
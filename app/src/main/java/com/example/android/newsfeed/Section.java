@@ -0,0 +1,115 @@
+package com.example.android.newsfeed;
+
+import android.content.Context;
+import android.support.annotation.StringRes;
+
+/**
+ * A {@link Section} describes one tab of the news feed: which news it shows and how they are
+ * requested from the Guardian API. All sections are listed in {@link SectionRegistry}.
+ */
+
+public class Section {
+
+    /**
+     * Position of the section in the {@link SectionRegistry}, also used as its loader ID
+     */
+    private final int mIndex;
+
+    /**
+     * String resource with the section name, used in API requests and as the tab title
+     */
+    @StringRes
+    private final int mNameResId;
+
+    /**
+     * Whether the news are requested by tag (e.g. tag=technology/technology gives more results
+     * than section=technology) instead of by section
+     */
+    private final boolean mRequestByTag;
+
+    /**
+     * Whether the section is loaded together with the other batched sections (see {@link NewsBatch}).
+     * Only sections requested by section can be batched, as the combined request is by section.
+     */
+    private final boolean mBatched;
+
+    /**
+     * Create a new {@link Section} object.
+     *
+     * @param index        is the position of the section in the registry
+     * @param nameResId    is the string resource with the section name
+     * @param requestByTag is whether the news are requested by tag instead of by section
+     * @param batched      is whether the section is loaded together with other sections
+     */
+    Section(int index, @StringRes int nameResId, boolean requestByTag, boolean batched) {
+        if (requestByTag && batched) {
+            // section=technology gives other news than tag=technology/technology.
+            throw new IllegalArgumentException("A section requested by tag cannot be batched");
+        }
+        mIndex = index;
+        mNameResId = nameResId;
+        mRequestByTag = requestByTag;
+        mBatched = batched;
+    }
+
+    /**
+     * Get the position of the section in the {@link SectionRegistry}.
+     *
+     * @return index of the section.
+     */
+    public int getIndex() {
+        return mIndex;
+    }
+
+    /**
+     * Get the ID of the loader loading the news of this section.
+     *
+     * @return loader ID.
+     */
+    public int getLoaderId() {
+        return mIndex;
+    }
+
+    /**
+     * Get the name of the section, as used in API requests (e.g. "technology").
+     *
+     * @param context used to read the string resource
+     * @return section name.
+     */
+    public String getName(Context context) {
+        return context.getString(mNameResId);
+    }
+
+    /**
+     * Get the title shown on the tab of the section.
+     *
+     * @param context used to read the string resource
+     * @return tab title.
+     */
+    public CharSequence getTitle(Context context) {
+        return context.getString(mNameResId);
+    }
+
+    /**
+     * Get whether the section is loaded together with the other batched sections.
+     *
+     * @return true if batched.
+     */
+    public boolean isBatched() {
+        return mBatched;
+    }
+
+    /**
+     * Build the request URL for the newest news of this section.
+     *
+     * @param context used to read the section name
+     * @return request URL.
+     */
+    public String buildRequestUrl(Context context) {
+        String sectionName = getName(context);
+        if (mRequestByTag) {
+            return FragmentUtils.buildRequestUrl(sectionName, sectionName);
+        }
+        return FragmentUtils.buildRequestUrl(sectionName);
+    }
+}
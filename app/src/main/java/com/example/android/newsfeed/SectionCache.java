@@ -0,0 +1,155 @@
+package com.example.android.newsfeed;
+
+import android.content.ComponentCallbacks2;
+import android.os.SystemClock;
+import android.support.v4.util.LruCache;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Process-wide memory cache of the last loaded list of {@link NewsObject}s of every section.
+ * <p>
+ * A tab whose fragment (and loader) has been destroyed shows its news again straight from
+ * this cache when it is recreated, without going to the database, network or parser.
+ * The cache is bounded by the estimated memory taken by the lists, least recently used lists
+ * are dropped first, and it shrinks when the system is low on memory (see
+ * {@link #onTrimMemory(int)}).
+ */
+
+public final class SectionCache {
+
+    /**
+     * Tag for log messages
+     */
+    private static final String LOG_TAG = SectionCache.class.getSimpleName();
+
+    /**
+     * Share of the maximum heap size used by the cache
+     */
+    private static final int HEAP_SHARE_DIVISOR = 32;
+
+    /**
+     * Estimated size in bytes of an object header, and of a String without its characters
+     */
+    private static final int OBJECT_OVERHEAD = 16;
+    private static final int STRING_OVERHEAD = 40;
+
+    /**
+     * Maximum size of the cache, in bytes
+     */
+    private static final int MAX_SIZE =
+            (int) Math.min(Runtime.getRuntime().maxMemory() / HEAP_SHARE_DIVISOR, Integer.MAX_VALUE);
+
+    /**
+     * Cached lists by list key (e.g. the section name), sized by their estimated bytes.
+     * The support library version is used, as trimToSize() is only public from API 17 on.
+     */
+    private static final LruCache<String, Entry> sCache = new LruCache<String, Entry>(MAX_SIZE) {
+        @Override
+        protected int sizeOf(String key, Entry entry) {
+            return entry.byteSize;
+        }
+    };
+
+    /**
+     * Create a private constructor because no one should ever create a {@link SectionCache} object.
+     */
+    private SectionCache() {
+    }
+
+    /**
+     * Return the cached list of the given list key, or null if there is none.
+     */
+    public static Entry get(String listKey) {
+        return sCache.get(listKey);
+    }
+
+    /**
+     * Cache a loaded list under the given list key, replacing the previous one.
+     */
+    public static void put(String listKey, List<NewsObject> newsObjects) {
+        sCache.put(listKey, new Entry(newsObjects));
+    }
+
+    /**
+     * Shrink the cache according to the trim level passed to
+     * {@link ComponentCallbacks2#onTrimMemory(int)}.
+     */
+    public static void onTrimMemory(int level) {
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_MODERATE
+                || level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL) {
+            // The process is likely to be killed, or the app is about to become unusable.
+            sCache.evictAll();
+        } else if (level >= ComponentCallbacks2.TRIM_MEMORY_BACKGROUND
+                || level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW) {
+            sCache.trimToSize(MAX_SIZE / 4);
+        } else if (level >= ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN
+                || level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_MODERATE) {
+            sCache.trimToSize(MAX_SIZE / 2);
+        }
+        Log.d(LOG_TAG, "Trimmed to " + sCache.size() + " bytes at level " + level);
+    }
+
+    /**
+     * Estimate the memory taken by a list of NewsObjects, including their Strings.
+     */
+    private static int estimateByteSize(List<NewsObject> newsObjects) {
+        // The list, its array and one reference per item
+        int size = 2 * OBJECT_OVERHEAD + 4 * newsObjects.size();
+        for (NewsObject newsObject : newsObjects) {
+            // The object with its 9 fields
+            size += OBJECT_OVERHEAD + 9 * 8;
+            size += estimateByteSize(newsObject.getTitle());
+            size += estimateByteSize(newsObject.getSectionId());
+            size += estimateByteSize(newsObject.getCategory());
+            size += estimateByteSize(newsObject.getPublishedDate());
+            size += estimateByteSize(newsObject.getInfoText());
+            size += estimateByteSize(newsObject.getNewsUrl());
+            size += estimateByteSize(newsObject.getAuthor());
+        }
+        return size;
+    }
+
+    /**
+     * Estimate the memory taken by a String.
+     */
+    private static int estimateByteSize(String string) {
+        return string == null ? 0 : STRING_OVERHEAD + 2 * string.length();
+    }
+
+    /**
+     * An immutable cached list, with the time it was cached.
+     */
+    public static final class Entry {
+        final List<NewsObject> newsObjects;
+        final long cachedTime;
+        final int byteSize;
+
+        Entry(List<NewsObject> newsObjects) {
+            this.newsObjects = Collections.unmodifiableList(new ArrayList<>(newsObjects));
+            this.cachedTime = SystemClock.elapsedRealtime();
+            this.byteSize = estimateByteSize(newsObjects);
+        }
+
+        /**
+         * Get the cached NewsObjects.
+         *
+         * @return unmodifiable list of NewsObjects.
+         */
+        public List<NewsObject> getNewsObjects() {
+            return newsObjects;
+        }
+
+        /**
+         * Get how long ago the list was cached.
+         *
+         * @return age in milliseconds.
+         */
+        public long getAge() {
+            return SystemClock.elapsedRealtime() - cachedTime;
+        }
+    }
+}
@@ -0,0 +1,299 @@
+package com.example.android.newsfeed;
+
+
+import android.app.LoaderManager;
+import android.content.Intent;
+import android.content.Loader;
+import android.os.Bundle;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.v4.app.Fragment;
+import android.support.v7.widget.DividerItemDecoration;
+import android.support.v7.widget.LinearLayoutManager;
+import android.support.v7.widget.RecyclerView;
+import android.util.Log;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.ProgressBar;
+import android.widget.TextView;
+
+import java.util.List;
+
+/**
+ * A {@link Fragment} showing the news of one {@link Section} from the {@link SectionRegistry}.
+ * Create instances with {@link #newInstance(int)}.
+ */
+public class SectionFragment extends Fragment implements LoaderManager.LoaderCallbacks<List<NewsObject>> {
+
+    /**
+     * Tag for log messages
+     */
+    private static final String LOG_TAG = SectionFragment.class.getName();
+
+    /**
+     * Argument holding the index of the section in the {@link SectionRegistry}
+     */
+    private static final String ARG_SECTION_INDEX = "section_index";
+
+    /**
+     * Adapter for the list of {@link NewsObject}s
+     */
+    private NewsAdapter mAdapter;
+
+    /**
+     * Loads further pages while the list is scrolled
+     */
+    private NewsPager mPager;
+
+    /**
+     * TextView that is displayed when the list is empty
+     */
+    private TextView mEmptyStateTextView;
+
+    /**
+     * Loading indicator that is displayed when the list is being loaded
+     */
+    private ProgressBar mLoadingIndicator;
+
+    /**
+     * The section shown by this fragment
+     */
+    private Section mSection;
+
+    /**
+     * Whether the view has been created and the loader can be started
+     */
+    private boolean mViewCreated;
+
+    /**
+     * Whether the loader has been started for the current view
+     */
+    private boolean mLoaderStarted;
+
+    /**
+     * Whether the loader has delivered news for the current view
+     */
+    private boolean mLoaded;
+
+    /**
+     * Whether the tab is about to be shown, so news should be loaded although it is not visible
+     */
+    private boolean mPrefetchRequested;
+
+    public SectionFragment() {
+        // Required empty public constructor
+    }
+
+    /**
+     * Create a new {@link SectionFragment} for the section at the given index of the
+     * {@link SectionRegistry}.
+     */
+    public static SectionFragment newInstance(int sectionIndex) {
+        Bundle args = new Bundle();
+        args.putInt(ARG_SECTION_INDEX, sectionIndex);
+        SectionFragment fragment = new SectionFragment();
+        fragment.setArguments(args);
+        return fragment;
+    }
+
+    @Override
+    public void onCreate(@Nullable Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        mSection = SectionRegistry.getSection(getArguments().getInt(ARG_SECTION_INDEX));
+    }
+
+    @Nullable
+    @Override
+    public View onCreateView(@NonNull LayoutInflater inflater, @Nullable ViewGroup container,
+                             @Nullable Bundle savedInstanceState) {
+        View rootView = inflater.inflate(R.layout.fragment_listingview, container, false);
+
+        // Create an {@link NewsAdapter}, whose data source is an empty list of {@link NewsObject}s.
+        // Show the article in a browser when its list item is clicked on.
+        mAdapter = new NewsAdapter(new NewsAdapter.OnNewsClickListener() {
+            @Override
+            public void onNewsClick(NewsObject newsObject) {
+                if (FragmentUtils.isMyInternetConnected(getContext())) {
+                    // Use the helper method to extract URL to be opened in a browser
+                    Intent openUrl = FragmentUtils.setOnNewsClickedAction(newsObject);
+                    // Use returned Intent
+                    startActivity(openUrl);
+                } else {
+                    // Inform user about invalid Internet connection
+                    FragmentUtils.displayNoInternetInfo(getContext());
+                }
+            }
+        });
+        // Bind times are recorded with the requests of the section (see PipelineMetrics).
+        mAdapter.setMetricsSection(mSection.getName(getContext()));
+
+        // Find the {@link RecyclerView} object in the view hierarchy of the root view {@link View}
+        // declared in the layout file.
+        RecyclerView newsRecyclerView = rootView.findViewById(R.id.list);
+
+        // Item views go back to the pool shared by all tabs when the list is detached.
+        LinearLayoutManager layoutManager = new LinearLayoutManager(getContext());
+        layoutManager.setRecycleChildrenOnDetach(true);
+        newsRecyclerView.setLayoutManager(layoutManager);
+        newsRecyclerView.addItemDecoration(
+                new DividerItemDecoration(getContext(), layoutManager.getOrientation()));
+        newsRecyclerView.setRecycledViewPool(((NewsFeedActivity) getActivity()).getNewsViewPool());
+
+        // Make the {@link RecyclerView} use the {@link NewsAdapter} above, so it displays
+        // list items for each {@link NewsObject} in the list.
+        newsRecyclerView.setAdapter(mAdapter);
+
+        // Load further pages in the background while the list is scrolled towards its end.
+        mPager = new NewsPager(getContext(), mAdapter);
+        newsRecyclerView.addOnScrollListener(mPager);
+
+        mEmptyStateTextView = rootView.findViewById(R.id.empty_view);
+        new EmptyViewObserver(newsRecyclerView, mEmptyStateTextView);
+
+        // Set empty state text to display when the app starts and loads data.
+        mEmptyStateTextView.setText(R.string.fragment_textview_loading);
+
+        // Set loading indicator to display when the list is loading data.
+        mLoadingIndicator = rootView.findViewById(R.id.loading_indicator);
+
+        // Show the headlines shown last time in the first frame, the loader replaces them.
+        List<NewsObject> snapshot = FeedSnapshot.read(getContext(), mSection.getName(getContext()));
+        if (snapshot != null) {
+            mAdapter.submitList(snapshot);
+        }
+
+        // The loader is only started once the tab is shown (or about to be),
+        // so tabs the user never opens do not cost any network traffic.
+        mViewCreated = true;
+        if (getUserVisibleHint() || mPrefetchRequested) {
+            startLoading();
+        }
+
+        return rootView;
+    }
+
+
+    @Override
+    public void setUserVisibleHint(boolean isVisibleToUser) {
+        super.setUserVisibleHint(isVisibleToUser);
+        if (isVisibleToUser) {
+            startLoading();
+        } else if (!mLoaded && !mPrefetchRequested) {
+            // The user swiped past this tab before its news arrived - don't finish loading.
+            stopLoading();
+        }
+    }
+
+    /**
+     * Start loading the news now, because the user is about to see this tab.
+     */
+    public void prefetch() {
+        mPrefetchRequested = true;
+        startLoading();
+    }
+
+    /**
+     * Start the loader, if the view exists and the loader has not been started yet.
+     */
+    private void startLoading() {
+        if (!mViewCreated || mLoaderStarted || !isAdded()) {
+            return;
+        }
+        mLoaderStarted = true;
+
+        // The loader shows stored news right away and only goes to the network if it is available.
+        Log.d(LOG_TAG, "Loading " + mSection.getName(getContext()) + ", network is active: "
+                + FragmentUtils.isMyInternetConnected(getContext()));
+
+        // Get a reference to the LoaderManager, in order to interact with loaders.
+        LoaderManager loaderManager = getActivity().getLoaderManager();
+        // Initialize the loader. Pass in the section's loader ID and pass in null for
+        // the bundle. Pass in this fragment for the LoaderCallbacks parameter (which is valid
+        // because this fragment implements the LoaderCallbacks interface).
+        loaderManager.initLoader(mSection.getLoaderId(), null, this);
+    }
+
+    /**
+     * Cancel the loader, if it has been started.
+     */
+    private void stopLoading() {
+        if (!mLoaderStarted || !isAdded()) {
+            return;
+        }
+        mLoaderStarted = false;
+        getActivity().getLoaderManager().destroyLoader(mSection.getLoaderId());
+        mLoadingIndicator.setVisibility(View.GONE);
+    }
+
+    @Override
+    public void onDestroyView() {
+        super.onDestroyView();
+        // Stop loading pages for a list which is gone.
+        mPager.cancel();
+        mViewCreated = false;
+        mLoaderStarted = false;
+        mLoaded = false;
+    }
+
+    @Override
+    public void onDestroy() {
+        super.onDestroy();
+        // Cancel the load in progress, its results have nowhere to go anymore.
+        getActivity().getLoaderManager().destroyLoader(mSection.getLoaderId());
+    }
+
+    @Override
+    public Loader<List<NewsObject>> onCreateLoader(int i, Bundle bundle) {
+
+        // Show loading indicator
+        mLoadingIndicator.setVisibility(View.VISIBLE);
+
+        // The loader builds the request URL of the section. Batched sections are loaded
+        // together, the others on their own.
+        return new NewsLoader(this.getContext(), mSection);
+    }
+
+
+    @Override
+    public void onLoadFinished(Loader<List<NewsObject>> loader, List<NewsObject> data) {
+
+        // Hide loading indicator
+        mLoadingIndicator.setVisibility(View.GONE);
+        mLoaded = true;
+
+        // If there is a valid list of {@link NewsObject}s, then show them. Only the rows
+        // which differ from the shown list are updated.
+        if (data != null && !data.isEmpty()) {
+            // Update the information displayed to the user, keeping the pages loaded below
+            // the first one. Further pages are loaded when the list is scrolled down.
+            NewsLoader newsLoader = (NewsLoader) loader;
+            mPager.showFirstPage(newsLoader.getStringUrl(), newsLoader.getListKey(), data);
+
+            // Show them right away on the next start (unless they are there already).
+            FeedSnapshot.write(getContext(), newsLoader.getListKey(), data);
+        } else if (!FragmentUtils.isMyInternetConnected(getContext())) {
+            mAdapter.submitList(null);
+
+            // Set empty state text to display "No Internet connection."
+            mEmptyStateTextView.setText(R.string.fragment_textview_nointernet);
+        } else if (((NewsLoader) loader).hasRequestFailed()) {
+            mAdapter.submitList(null);
+
+            // Set empty state text to display "News are not available at the moment."
+            mEmptyStateTextView.setText(R.string.fragment_textview_unavailable);
+        } else {
+            mAdapter.submitList(null);
+
+            // Set empty state text to display "No news found."
+            mEmptyStateTextView.setText(R.string.fragment_textview_nonews);
+        }
+    }
+
+    @Override
+    public void onLoaderReset(Loader<List<NewsObject>> loader) {
+        mPager.cancel();
+        // Clear the adapter of previous news data
+        mAdapter.submitList(null);
+    }
+}
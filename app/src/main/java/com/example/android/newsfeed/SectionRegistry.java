@@ -0,0 +1,77 @@
+package com.example.android.newsfeed;
+
+import android.content.Context;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * List of all {@link Section}s shown as tabs, in tab order. Adding a section only takes a new
+ * entry here (and its name in strings.xml) - every tab is a {@link SectionFragment}.
+ */
+
+public final class SectionRegistry {
+
+    /**
+     * All sections, in tab order
+     */
+    private static final List<Section> sSections;
+
+    static {
+        List<Section> sections = new ArrayList<>();
+        // Technology and science are requested by tag, so they are loaded on their own.
+        sections.add(new Section(sections.size(), R.string.category_technology, true, false));
+        sections.add(new Section(sections.size(), R.string.category_world, false, true));
+        sections.add(new Section(sections.size(), R.string.category_science, true, false));
+        sections.add(new Section(sections.size(), R.string.category_business, false, true));
+        sSections = Collections.unmodifiableList(sections);
+    }
+
+    /**
+     * Create a private constructor because no one should ever create a {@link SectionRegistry} object.
+     */
+    private SectionRegistry() {
+    }
+
+    /**
+     * Get all sections, in tab order.
+     *
+     * @return unmodifiable list of sections.
+     */
+    public static List<Section> getSections() {
+        return sSections;
+    }
+
+    /**
+     * Get the section at the given tab position.
+     *
+     * @param index position of the tab
+     * @return section at this position.
+     */
+    public static Section getSection(int index) {
+        return sSections.get(index);
+    }
+
+    /**
+     * Get the number of sections.
+     *
+     * @return number of tabs.
+     */
+    public static int size() {
+        return sSections.size();
+    }
+
+    /**
+     * Return the names of all sections loaded together with a single request.
+     */
+    public static String[] getBatchedSectionNames(Context context) {
+        List<String> names = new ArrayList<>();
+        for (Section section : sSections) {
+            if (section.isBatched()) {
+                names.add(section.getName(context));
+            }
+        }
+        return names.toArray(new String[names.size()]);
+    }
+}
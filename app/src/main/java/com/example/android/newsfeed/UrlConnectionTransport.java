@@ -0,0 +1,116 @@
+package com.example.android.newsfeed;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.URL;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * {@link HttpTransport} based on {@link HttpURLConnection}.
+ * <p>
+ * Connections are never disconnected - the response body is consumed and closed instead,
+ * so the platform keeps the connection alive and reuses it for the next request to the
+ * same host.
+ * <p>
+ * The DNS lookup is only timed on its own when a new connection is likely, i.e. when there
+ * has been no response from the host within {@link #KEEP_ALIVE_TIME}. A reused connection needs
+ * no lookup, so it is not delayed by one.
+ */
+
+public class UrlConnectionTransport implements HttpTransport {
+
+    /**
+     * Read timeout in milliseconds
+     */
+    private static final int READ_TIMEOUT = 10000;
+
+    /**
+     * Connect timeout in milliseconds
+     */
+    private static final int CONNECT_TIMEOUT = 15000;
+
+    /**
+     * Time (in milliseconds) the platform keeps an idle connection alive for reuse
+     */
+    private static final long KEEP_ALIVE_TIME = 5 * 60 * 1000;
+
+    /**
+     * Time ({@link System#nanoTime()}) of the last response from every host
+     */
+    private final Map<String, Long> mLastResponseTimes = new ConcurrentHashMap<>();
+
+    @Override
+    public HttpResponse execute(URL url, Map<String, String> requestHeaders) throws IOException {
+        HttpURLConnection urlConnection = (HttpURLConnection) url.openConnection();
+        try {
+            urlConnection.setReadTimeout(READ_TIMEOUT);
+            urlConnection.setConnectTimeout(CONNECT_TIMEOUT);
+            urlConnection.setRequestMethod("GET");
+            for (Map.Entry<String, String> header : requestHeaders.entrySet()) {
+                urlConnection.setRequestProperty(header.getKey(), header.getValue());
+            }
+
+            String host = url.getHost();
+            long startTime = System.nanoTime();
+            Long lastResponseTime = mLastResponseTimes.get(host);
+            if (lastResponseTime == null
+                    || startTime - lastResponseTime > KEEP_ALIVE_TIME * 1000000L) {
+                // A new connection - resolve the host first, so the lookup is timed on its own.
+                // The connection then finds the address in the cache of the resolver.
+                PipelineMetrics.beginTrace("News:dns");
+                try {
+                    InetAddress.getAllByName(host);
+                } finally {
+                    PipelineMetrics.endTrace();
+                }
+                PipelineMetrics.addStageTime(PipelineMetrics.STAGE_DNS,
+                        System.nanoTime() - startTime);
+            }
+            long dnsTime = System.nanoTime();
+
+            // Nearly instant if a keep-alive connection is reused, TCP and TLS handshakes otherwise.
+            PipelineMetrics.beginTrace("News:connect");
+            try {
+                urlConnection.connect();
+            } finally {
+                PipelineMetrics.endTrace();
+            }
+            long connectTime = System.nanoTime();
+            PipelineMetrics.addStageTime(PipelineMetrics.STAGE_CONNECT, connectTime - dnsTime);
+
+            // Sending the request and waiting for the status line and headers.
+            int responseCode;
+            PipelineMetrics.beginTrace("News:ttfb");
+            try {
+                responseCode = urlConnection.getResponseCode();
+            } finally {
+                PipelineMetrics.endTrace();
+            }
+            long responseTime = System.nanoTime();
+            PipelineMetrics.addStageTime(PipelineMetrics.STAGE_TTFB, responseTime - connectTime);
+            mLastResponseTimes.put(host, responseTime);
+
+            Map<String, String> headers = new HashMap<>();
+            for (Map.Entry<String, List<String>> header : urlConnection.getHeaderFields().entrySet()) {
+                List<String> values = header.getValue();
+                if (header.getKey() != null && values != null && !values.isEmpty()) {
+                    headers.put(header.getKey(), values.get(values.size() - 1));
+                }
+            }
+
+            InputStream body = responseCode >= HttpURLConnection.HTTP_BAD_REQUEST
+                    ? urlConnection.getErrorStream()
+                    : urlConnection.getInputStream();
+            return new HttpResponse(responseCode, headers, body);
+        } catch (IOException e) {
+            // Without a response there is nothing to close later, so release the connection now.
+            urlConnection.disconnect();
+            throw e;
+        }
+    }
+}
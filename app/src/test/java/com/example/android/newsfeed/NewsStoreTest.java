@@ -0,0 +1,85 @@
+package com.example.android.newsfeed;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class NewsStoreTest {
+
+    @Test
+    public void buildMatchQuery_makesPrefixTermsOfWords() {
+        assertEquals("climate* change*", NewsStore.buildMatchQuery("Climate change"));
+        assertEquals("covid19* uk*", NewsStore.buildMatchQuery("  COVID19,   UK. "));
+    }
+
+    @Test
+    public void buildMatchQuery_dropsQuotesAndSyntax() {
+        assertEquals("brexit* deal*", NewsStore.buildMatchQuery("\"brexit\" -deal*"));
+        assertEquals("title* x*", NewsStore.buildMatchQuery("title:x ( ) ^"));
+        assertEquals("it* s*", NewsStore.buildMatchQuery("it's"));
+    }
+
+    @Test
+    public void buildMatchQuery_lowerCasesOperators() {
+        // FTS operators are only recognized in upper case.
+        assertEquals("cats* or* dogs* not* near* and* mice*",
+                NewsStore.buildMatchQuery("cats OR dogs NOT NEAR AND mice"));
+    }
+
+    @Test
+    public void buildMatchQuery_withoutWords_isNull() {
+        assertNull(NewsStore.buildMatchQuery(null));
+        assertNull(NewsStore.buildMatchQuery(""));
+        assertNull(NewsStore.buildMatchQuery("\"*\" - ()"));
+    }
+
+    @Test
+    public void scoreMatch_weightsColumnsAndRareWords() {
+        // One word, three columns (title, author, section): hits in this row, in all rows,
+        // rows with hits.
+        double titleHit = NewsStore.scoreMatch(matchInfo(1, 3,
+                1, 4, 4,
+                0, 0, 0,
+                0, 0, 0));
+        double authorHit = NewsStore.scoreMatch(matchInfo(1, 3,
+                0, 0, 0,
+                1, 4, 4,
+                0, 0, 0));
+        double commonTitleHit = NewsStore.scoreMatch(matchInfo(1, 3,
+                1, 40, 40,
+                0, 0, 0,
+                0, 0, 0));
+        assertEquals(3.0 / 4, titleHit, 1e-9);
+        assertEquals(2.0 / 4, authorHit, 1e-9);
+        assertTrue(titleHit > authorHit);
+        assertTrue(titleHit > commonTitleHit);
+    }
+
+    @Test
+    public void scoreMatch_addsAllWords() {
+        double score = NewsStore.scoreMatch(matchInfo(2, 3,
+                2, 4, 2,
+                0, 0, 0,
+                1, 1, 1,
+                0, 0, 0,
+                1, 2, 2,
+                0, 0, 0));
+        assertEquals(3.0 * 2 / 4 + 1.0 * 1 / 1 + 2.0 * 1 / 2, score, 1e-9);
+    }
+
+    /**
+     * Build a matchinfo 'pcx' blob, 32-bit integers in the native byte order.
+     */
+    private static byte[] matchInfo(int... values) {
+        ByteBuffer buffer = ByteBuffer.allocate(4 * values.length).order(ByteOrder.nativeOrder());
+        for (int value : values) {
+            buffer.putInt(value);
+        }
+        return buffer.array();
+    }
+}
@@ -0,0 +1,150 @@
+package com.example.android.newsfeed;
+
+import java.nio.charset.Charset;
+import java.util.Locale;
+
+/**
+ * Responses of the Guardian search endpoint for the benchmarks.
+ * <p>
+ * They have the structure, field order and typical value lengths of real responses to
+ * /search?show-tags=contributor (a full tag object per contributor, with bio and byline image)
+ * and /search?show-fields=byline, and are generated from a fixed seed so every run parses
+ * the same bytes.
+ */
+
+final class GuardianFixtures {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static final String[][] SECTIONS = {
+            {"technology", "Technology"},
+            {"world", "World news"},
+            {"science", "Science"},
+            {"business", "Business"},
+    };
+
+    private static final String[] WORDS = {
+            "climate", "market", "government", "report", "data", "study", "election",
+            "energy", "privacy", "growth", "scientists", "company", "plans", "warns",
+            "new", "record", "crisis", "talks", "future", "ban",
+    };
+
+    private static final String[][] CONTRIBUTORS = {
+            {"Alex", "Hern"}, {"Samuel", "Gibbs"}, {"Hannah", "Devlin"},
+            {"Julia", "Kollewe"}, {"Patrick", "Wintour"}, {"Ian", "Sample"},
+    };
+
+    /**
+     * Create a private constructor because no one should ever create a {@link GuardianFixtures} object.
+     */
+    private GuardianFixtures() {
+    }
+
+    /**
+     * Build a response with the given number of results.
+     *
+     * @param resultCount number of elements of the "results" array
+     * @param withTags    whether the authors come as contributor tags (the full payload)
+     *                    or as the byline field (the minimal payload)
+     * @return the UTF-8 encoded JSON.
+     */
+    static byte[] response(int resultCount, boolean withTags) {
+        // Linear congruential generator, so the fixtures never change between runs
+        long seed = 42;
+        StringBuilder json = new StringBuilder(resultCount * (withTags ? 1400 : 600));
+        json.append("{\"response\":{\"status\":\"ok\",\"userTier\":\"developer\",\"total\":")
+                .append(resultCount * 97).append(",\"startIndex\":1,\"pageSize\":")
+                .append(resultCount).append(",\"currentPage\":1,\"pages\":97,")
+                .append("\"orderBy\":\"newest\",\"results\":[");
+
+        for (int i = 0; i < resultCount; i++) {
+            seed = next(seed);
+            String[] section = SECTIONS[(int) (seed >>> 33) % SECTIONS.length];
+            String slug = slug(seed);
+            String date = String.format(Locale.US, "2017-11-%02dT%02d:%02d:%02dZ",
+                    27 - i % 27, i % 24, (i * 7) % 60, (i * 13) % 60);
+            String id = section[0] + "/2017/nov/" + (27 - i % 27) + "/" + slug;
+
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"id\":\"").append(id)
+                    .append("\",\"type\":\"article\",\"sectionId\":\"").append(section[0])
+                    .append("\",\"sectionName\":\"").append(section[1])
+                    .append("\",\"webPublicationDate\":\"").append(date)
+                    .append("\",\"webTitle\":\"").append(title(seed))
+                    .append("\",\"webUrl\":\"https://www.theguardian.com/").append(id)
+                    .append("\",\"apiUrl\":\"https://content.guardianapis.com/").append(id)
+                    .append('"');
+
+            seed = next(seed);
+            int contributorCount = 1 + (int) ((seed >>> 40) % 2);
+            if (withTags) {
+                json.append(",\"tags\":[");
+                for (int c = 0; c < contributorCount; c++) {
+                    if (c > 0) {
+                        json.append(',');
+                    }
+                    appendContributorTag(json, CONTRIBUTORS[(i + c) % CONTRIBUTORS.length]);
+                }
+                json.append(']');
+            } else {
+                json.append(",\"fields\":{\"byline\":\"");
+                for (int c = 0; c < contributorCount; c++) {
+                    String[] contributor = CONTRIBUTORS[(i + c) % CONTRIBUTORS.length];
+                    json.append(c > 0 ? " and " : "")
+                            .append(contributor[0]).append(' ').append(contributor[1]);
+                }
+                json.append("\"}");
+            }
+            json.append(",\"isHosted\":false,\"pillarId\":\"pillar/news\",\"pillarName\":\"News\"}");
+        }
+
+        json.append("]}}");
+        return json.toString().getBytes(UTF_8);
+    }
+
+    private static void appendContributorTag(StringBuilder json, String[] contributor) {
+        String profile = "profile/" + contributor[0].toLowerCase(Locale.US)
+                + contributor[1].toLowerCase(Locale.US);
+        String name = contributor[0] + " " + contributor[1];
+        json.append("{\"id\":\"").append(profile)
+                .append("\",\"type\":\"contributor\",\"webTitle\":\"").append(name)
+                .append("\",\"webUrl\":\"https://www.theguardian.com/").append(profile)
+                .append("\",\"apiUrl\":\"https://content.guardianapis.com/").append(profile)
+                .append("\",\"references\":[],\"bio\":\"<p>").append(name)
+                .append(" is a Guardian correspondent covering science, technology and the")
+                .append(" economy. Before joining the Guardian, ").append(contributor[0])
+                .append(" worked as a reporter in London and Brussels.</p>\"")
+                .append(",\"bylineImageUrl\":\"https://uploads.guim.co.uk/2017/10/06/")
+                .append(contributor[1]).append(",_L.png\"")
+                .append(",\"bylineLargeImageUrl\":\"https://uploads.guim.co.uk/2017/10/06/")
+                .append(contributor[1]).append("_L.png\"")
+                .append(",\"firstName\":\"").append(contributor[0].toLowerCase(Locale.US))
+                .append("\",\"lastName\":\"").append(contributor[1])
+                .append("\",\"twitterHandle\":\"").append(contributor[0].toLowerCase(Locale.US))
+                .append(contributor[1].toLowerCase(Locale.US)).append("\"}");
+    }
+
+    private static String title(long seed) {
+        StringBuilder title = new StringBuilder();
+        for (int w = 0; w < 10; w++) {
+            seed = next(seed);
+            String word = WORDS[(int) ((seed >>> 33) % WORDS.length)];
+            if (w == 0) {
+                title.append(Character.toUpperCase(word.charAt(0))).append(word, 1, word.length());
+            } else {
+                title.append(' ').append(word);
+            }
+        }
+        return title.toString();
+    }
+
+    private static String slug(long seed) {
+        return title(seed).toLowerCase(Locale.US).replace(' ', '-');
+    }
+
+    private static long next(long seed) {
+        return (seed * 0x5DEECE66DL + 0xBL) & ((1L << 48) - 1);
+    }
+}
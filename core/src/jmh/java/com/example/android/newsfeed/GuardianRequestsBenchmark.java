@@ -0,0 +1,43 @@
+package com.example.android.newsfeed;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time taken by {@link GuardianRequests} to build the request URLs of a load.
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class GuardianRequestsBenchmark {
+
+    private final GuardianRequests mRequests = new GuardianRequests(
+            "https://content.guardianapis.com/search", "test-api-key", 20, true);
+
+    @Benchmark
+    public String sectionRequest() {
+        return mRequests.buildRequestUrl("technology");
+    }
+
+    @Benchmark
+    public String batchRequest() {
+        return mRequests.buildBatchRequestUrl("technology", "world", "science", "business");
+    }
+
+    @Benchmark
+    public String searchRequest() {
+        return mRequests.buildSearchRequestUrl("climate change \u00e9t\u00e9");
+    }
+
+    @Benchmark
+    public String pageRequest() {
+        return GuardianRequests.buildPageRequestUrl(mRequests.buildRequestUrl("technology"), 3);
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.android.newsfeed;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parse time of a whole Guardian response by {@link NewsParser}.
+ * <p>
+ * Reports the throughput (responses parsed per millisecond) and the sampled parse time, whose
+ * p0.99 is the p99 parse latency. Run with the gc profiler (the default of ./gradlew :core:jmh)
+ * to get the allocation rate: gc.alloc.rate.norm is the number of bytes allocated per parse.
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class NewsParserBenchmark {
+
+    /**
+     * Number of results in the response: a page, the largest page, a whole stored section
+     */
+    @Param({"20", "200", "2000"})
+    public int resultCount;
+
+    /**
+     * Whether the authors come as contributor tags (full payload) or the byline field
+     */
+    @Param({"true", "false"})
+    public boolean withTags;
+
+    private byte[] mResponse;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        mResponse = GuardianFixtures.response(resultCount, withTags);
+        // Fail fast rather than benchmark a parser which drops results.
+        ArrayList<NewsObject> newsObjects = NewsParser.parse(new ByteArrayInputStream(mResponse));
+        if (newsObjects == null || newsObjects.size() != resultCount
+                || newsObjects.get(0).getAuthor() == null) {
+            throw new IllegalStateException("Fixture not parsed as expected");
+        }
+    }
+
+    @Benchmark
+    public ArrayList<NewsObject> parse() throws IOException {
+        return NewsParser.parse(new ByteArrayInputStream(mResponse));
+    }
+}
@@ -0,0 +1,238 @@
+package com.example.android.newsfeed;
+
+import java.nio.charset.Charset;
+
+/**
+ * Builds the request URLs of the Guardian API for one base URL and API key.
+ * <p>
+ * The query parameters are encoded like android.net.Uri.Builder#appendQueryParameter does, so
+ * the URLs are the same as the ones built with Uri - but this class has no Android
+ * dependencies and can be tested and benchmarked on the JVM.
+ */
+
+public final class GuardianRequests {
+
+    /**
+     * Largest page size accepted by the Guardian API.
+     */
+    public static final int MAX_PAGE_SIZE = 200;
+
+    /**
+     * Characters never percent-encoded in a query parameter, as in android.net.Uri#encode
+     */
+    private static final String UNRESERVED_CHARACTERS = "_-!.~'()*";
+
+    private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    /**
+     * URL of the search endpoint, e.g. "https://content.guardianapis.com/search"
+     */
+    private final String mBaseUrl;
+
+    /**
+     * API key sent with every request
+     */
+    private final String mApiKey;
+
+    /**
+     * Number of NewsObjects requested per page
+     */
+    private final int mPageSize;
+
+    /**
+     * Whether the author is requested as the "byline" field instead of contributor tags
+     */
+    private final boolean mMinimalPayload;
+
+    /**
+     * Create a new {@link GuardianRequests}.
+     *
+     * @param baseUrl        URL of the search endpoint
+     * @param apiKey         API key sent with every request
+     * @param pageSize       number of NewsObjects requested per page
+     * @param minimalPayload whether the author is requested as the "byline" field
+     *                       instead of contributor tags
+     */
+    public GuardianRequests(String baseUrl, String apiKey, int pageSize, boolean minimalPayload) {
+        mBaseUrl = baseUrl;
+        mApiKey = apiKey;
+        mPageSize = pageSize;
+        mMinimalPayload = minimalPayload;
+    }
+
+    /**
+     * Build the request URL for the newest NewsObjects of a section.
+     */
+    public String buildRequestUrl(String sectionName) {
+        return buildRequestUrl(sectionName, mMinimalPayload);
+    }
+
+    /**
+     * Build the request URL for the newest NewsObjects of a section, with or without
+     * the minimal payload.
+     */
+    public String buildRequestUrl(String sectionName, boolean minimalPayload) {
+        return new QueryBuilder(mBaseUrl)
+                .append("format", "json")
+                .append("section", sectionName) // e.g. section=technology
+                .appendAuthor(minimalPayload)
+                .append("page-size", String.valueOf(mPageSize))
+                .append("order-by", "newest")
+                .append("api-key", mApiKey)
+                .toString();
+    }
+
+    /**
+     * Build the request URL for the newest NewsObjects of a tag, e.g. technology/technology.
+     */
+    public String buildRequestUrl(String tagOne, String tagTwo) {
+        return new QueryBuilder(mBaseUrl)
+                .append("format", "json")
+                .append("tag", tagOne + "/" + tagTwo) // e.g. tag=technology/technology gives more results than section=technology
+                .appendAuthor(mMinimalPayload)
+                .append("page-size", String.valueOf(mPageSize))
+                .append("order-by", "newest")
+                .append("api-key", mApiKey)
+                .toString();
+    }
+
+    /**
+     * Build the request URL for the NewsObjects of all sections matching the words of a search,
+     * most relevant first.
+     */
+    public String buildSearchRequestUrl(String query) {
+        return new QueryBuilder(mBaseUrl)
+                .append("format", "json")
+                .append("q", query) // e.g. q=climate change
+                .appendAuthor(mMinimalPayload)
+                .append("page-size", String.valueOf(mPageSize))
+                .append("order-by", "relevance")
+                .append("api-key", mApiKey)
+                .toString();
+    }
+
+    /**
+     * Build a request URL for the newest NewsObjects of all the given sections at once,
+     * e.g. section=world|business. Sections publish at very different rates, so the combined
+     * page is as large as the API allows, which leaves a full page for the slower sections too.
+     */
+    public String buildBatchRequestUrl(String... sectionNames) {
+        StringBuilder sections = new StringBuilder();
+        for (String sectionName : sectionNames) {
+            if (sections.length() > 0) {
+                sections.append('|');
+            }
+            sections.append(sectionName);
+        }
+        return new QueryBuilder(mBaseUrl)
+                .append("format", "json")
+                .append("section", sections.toString()) // e.g. section=technology|world
+                .appendAuthor(mMinimalPayload)
+                .append("page-size", String.valueOf(MAX_PAGE_SIZE))
+                .append("order-by", "newest")
+                .append("api-key", mApiKey)
+                .toString();
+    }
+
+    /**
+     * Build the request URL for a further page of the results of the given request URL.
+     *
+     * @param firstPageUrl request URL of the first page
+     * @param page         number of the page to request, starting at 1
+     */
+    public static String buildPageRequestUrl(String firstPageUrl, int page) {
+        return new QueryBuilder(firstPageUrl)
+                .append("page", String.valueOf(page))
+                .toString();
+    }
+
+    /**
+     * Build the request URL for the NewsObjects of the given request URL published since
+     * the given date.
+     *
+     * @param requestUrl    request URL of the first page
+     * @param publishedDate publication date of the newest known NewsObject
+     *                      (format "yyyy-MM-dd'T'HH:mm:ss'Z'")
+     */
+    public static String buildDeltaRequestUrl(String requestUrl, String publishedDate) {
+        // The API filters by day (e.g. from-date=2017-11-20), so the newest known
+        // NewsObjects are received again and have to be merged by URL.
+        return new QueryBuilder(requestUrl)
+                .append("from-date", publishedDate.substring(0, 10))
+                .toString();
+    }
+
+    /**
+     * Percent-encode a query parameter name or value: all characters but letters, digits and
+     * {@link #UNRESERVED_CHARACTERS} are encoded as UTF-8 bytes (e.g. space becomes %20).
+     */
+    static String encode(String value) {
+        StringBuilder encoded = null;
+        int length = value.length();
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (isUnreserved(c)) {
+                if (encoded != null) {
+                    encoded.append(c);
+                }
+                continue;
+            }
+            if (encoded == null) {
+                // Only copy values which need encoding.
+                encoded = new StringBuilder(length + 16).append(value, 0, i);
+            }
+            // Encode the whole run of reserved characters at once, to keep surrogate pairs.
+            int end = i + 1;
+            while (end < length && !isUnreserved(value.charAt(end))) {
+                end++;
+            }
+            for (byte b : value.substring(i, end).getBytes(UTF_8)) {
+                encoded.append('%').append(HEX_DIGITS[(b >> 4) & 0xF]).append(HEX_DIGITS[b & 0xF]);
+            }
+            i = end - 1;
+        }
+        return encoded == null ? value : encoded.toString();
+    }
+
+    private static boolean isUnreserved(char c) {
+        return (c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9')
+                || UNRESERVED_CHARACTERS.indexOf(c) != -1;
+    }
+
+    /**
+     * Appends encoded query parameters to a URL, after its existing ones if there are any.
+     */
+    private static final class QueryBuilder {
+        private final StringBuilder mUrl;
+        private boolean mHasQuery;
+
+        QueryBuilder(String url) {
+            mUrl = new StringBuilder(url.length() + 192).append(url);
+            mHasQuery = url.indexOf('?') != -1;
+        }
+
+        QueryBuilder append(String name, String value) {
+            mUrl.append(mHasQuery ? '&' : '?').append(encode(name)).append('=').append(encode(value));
+            mHasQuery = true;
+            return this;
+        }
+
+        /**
+         * Ask for the author of every NewsObject - as the byline field in the minimal payload,
+         * or as contributor tags otherwise. {@link NewsParser} reads either of them.
+         */
+        QueryBuilder appendAuthor(boolean minimalPayload) {
+            if (minimalPayload) {
+                return append("show-fields", "byline");
+            }
+            return append("show-tags", "contributor");
+        }
+
+        @Override
+        public String toString() {
+            return mUrl.toString();
+        }
+    }
+}
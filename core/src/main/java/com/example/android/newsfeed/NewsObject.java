@@ -0,0 +1,357 @@
+package com.example.android.newsfeed;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Locale;
+import java.util.TimeZone;
+
+/**
+ * A {@link NewsObject} object contains information related to a single newsObject.
+ * Contains information about Title, Date of publication and Article URL.
+ */
+
+public class NewsObject {
+
+    /**
+     * Value of {@link #getPublishedTime()} when the publication date is missing or invalid
+     */
+    public static final long UNKNOWN_TIME = 0;
+
+    /**
+     * Format of the publication date received from the API, one instance per thread
+     * because {@link SimpleDateFormat} is not thread safe
+     */
+    private static final ThreadLocal<SimpleDateFormat> sPublishedDateFormat =
+            new ThreadLocal<SimpleDateFormat>() {
+                @Override
+                protected SimpleDateFormat initialValue() {
+                    SimpleDateFormat format =
+                            new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'", Locale.US);
+                    format.setTimeZone(TimeZone.getTimeZone("UTC"));
+                    return format;
+                }
+            };
+
+    /**
+     * String value of the newsObject title
+     */
+    private String mTitle;
+
+    /**
+     * String value of the newsObject section ID, as used in API requests (e.g. "technology")
+     */
+    private String mSectionId;
+
+    /**
+     * String value of the newsObject category
+     */
+    private String mCategory;
+
+    /**
+     * String value of the newsObject publication date
+     */
+    private String mPublishedDate;
+
+    /**
+     * Publication date in milliseconds since the epoch, or {@link #UNKNOWN_TIME}
+     */
+    private long mPublishedTime;
+
+    /**
+     * Info line shown above the title ("AUTHOR  @  CATEGORY"), built once when the object is
+     * created, so binding a list item does not have to build it again
+     */
+    private String mInfoText;
+
+    /**
+     * String value of the newsObject web URL
+     */
+    private String mNewsUrl;
+
+    /**
+     * 64-bit hash of the web URL, used as a stable ID of the newsObject in lists
+     */
+    private long mStableId;
+
+    /**
+     * String value of the newsObject author
+     */
+    private String mAuthor = null;
+
+
+    /**
+     * Create a new {@link NewsObject} object with initial values of title, newsUrl and publishedDate.
+     *
+     * @param title         is the title of the NewsObject
+     * @param publishedDate is the date of publication of the NewsObject
+     * @param newsUrl       is the web Url of the NewsObject
+     */
+    public NewsObject(String title, String publishedDate, String newsUrl) {
+        mTitle = title;
+        mPublishedDate = publishedDate;
+        mPublishedTime = parsePublishedTime(publishedDate);
+        mNewsUrl = newsUrl;
+        mInfoText = buildInfoText(mAuthor, mCategory);
+        mStableId = hashUrl(mNewsUrl);
+    }
+
+    /**
+     * Create a new {@link NewsObject} object with initial values of title,
+     * category, newsUrl and publishedDate.
+     *
+     * @param title         is the title of the NewsObject
+     * @param category      is the category of the NewsObject
+     * @param publishedDate is the date of publication of the NewsObject
+     * @param newsUrl       is the web Url of the NewsObject
+     */
+    public NewsObject(String title, String category, String publishedDate, String newsUrl) {
+        mTitle = title;
+        mCategory = category;
+        mPublishedDate = publishedDate;
+        mPublishedTime = parsePublishedTime(publishedDate);
+        mNewsUrl = newsUrl;
+        mInfoText = buildInfoText(mAuthor, mCategory);
+        mStableId = hashUrl(mNewsUrl);
+    }
+
+    /**
+     * Create a new {@link NewsObject} object with initial values of title,
+     * category, newsUrl and publishedDate.
+     *
+     * @param title         is the title of the NewsObject
+     * @param category      is the category of the NewsObject
+     * @param publishedDate is the date of publication of the NewsObject
+     * @param newsUrl       is the web Url of the NewsObject
+     * @param author        is the author of the NewsObject
+     */
+    public NewsObject(String title, String category, String publishedDate, String newsUrl,
+                      String author) {
+        mTitle = title;
+        mCategory = category;
+        mPublishedDate = publishedDate;
+        mPublishedTime = parsePublishedTime(publishedDate);
+        mNewsUrl = newsUrl;
+        mAuthor = author;
+        mInfoText = buildInfoText(mAuthor, mCategory);
+        mStableId = hashUrl(mNewsUrl);
+    }
+
+    /**
+     * Create a new {@link NewsObject} object with initial values of title, section ID,
+     * category, newsUrl, publishedDate and author.
+     *
+     * @param title         is the title of the NewsObject
+     * @param sectionId     is the section ID of the NewsObject, used in API requests
+     * @param category      is the category (section name) of the NewsObject
+     * @param publishedDate is the date of publication of the NewsObject
+     * @param newsUrl       is the web Url of the NewsObject
+     * @param author        is the author of the NewsObject, may be null
+     */
+    public NewsObject(String title, String sectionId, String category, String publishedDate,
+                      String newsUrl, String author) {
+        this(title, sectionId, category, publishedDate, parsePublishedTime(publishedDate),
+                newsUrl, author);
+    }
+
+    /**
+     * Create a new {@link NewsObject} object whose publication date has been parsed before,
+     * e.g. when it was saved, so nothing is parsed on the (main) thread creating it.
+     *
+     * @param title         is the title of the NewsObject
+     * @param sectionId     is the section ID of the NewsObject, used in API requests
+     * @param category      is the category (section name) of the NewsObject
+     * @param publishedDate is the date of publication of the NewsObject
+     * @param publishedTime is the value of {@link #getPublishedTime()} for publishedDate
+     * @param newsUrl       is the web Url of the NewsObject
+     * @param author        is the author of the NewsObject, may be null
+     */
+    public NewsObject(String title, String sectionId, String category, String publishedDate,
+                      long publishedTime, String newsUrl, String author) {
+        mTitle = title;
+        mSectionId = sectionId;
+        mCategory = category;
+        mPublishedDate = publishedDate;
+        mPublishedTime = publishedTime;
+        mNewsUrl = newsUrl;
+        mAuthor = author;
+        mInfoText = buildInfoText(mAuthor, mCategory);
+        mStableId = hashUrl(mNewsUrl);
+    }
+
+
+    /**
+     * Get the string value representing Title of the NewsObject.
+     *
+     * @return title of the newsObject.
+     */
+    public String getTitle() {
+        return mTitle;
+    }
+
+    /**
+     * Get the string value representing section ID of the NewsObject.
+     *
+     * @return section ID of the newsObject, may be null.
+     */
+    public String getSectionId() {
+        return mSectionId;
+    }
+
+    /**
+     * Get the string value representing category of the NewsObject.
+     *
+     * @return category of the newsObject.
+     */
+    public String getCategory() {
+        return mCategory;
+    }
+
+    /**
+     * Get the string value of the NewsObject class representing date of publication.
+     *
+     * @return publication date.
+     */
+    public String getPublishedDate() {
+        return mPublishedDate;
+    }
+
+    /**
+     * Get the date of publication of the NewsObject, parsed when the object was created.
+     *
+     * @return publication date in milliseconds since the epoch, or {@link #UNKNOWN_TIME}.
+     */
+    public long getPublishedTime() {
+        return mPublishedTime;
+    }
+
+    /**
+     * Get the info line shown above the title: the upper case category, preceded by the
+     * author if known.
+     *
+     * @return info line, e.g. "John Smith  @  TECHNOLOGY".
+     */
+    public String getInfoText() {
+        return mInfoText;
+    }
+
+    /**
+     * Get the string value representing web URL of the NewsObject.
+     *
+     * @return web URL of the newsObject.
+     */
+    public String getNewsUrl() {
+        return mNewsUrl;
+    }
+
+    /**
+     * Get the stable ID of the NewsObject, derived from its web URL. The same article
+     * always gets the same ID, also after it has been loaded again.
+     *
+     * @return stable ID of the newsObject.
+     */
+    public long getStableId() {
+        return mStableId;
+    }
+
+    /**
+     * Get the string value representing author of the NewsObject.
+     *
+     * @return author of the newsObject.
+     */
+    public String getAuthor() {
+        return mAuthor;
+    }
+
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        NewsObject that = (NewsObject) o;
+        return equal(mTitle, that.mTitle)
+                && equal(mSectionId, that.mSectionId)
+                && equal(mCategory, that.mCategory)
+                && equal(mPublishedDate, that.mPublishedDate)
+                && equal(mNewsUrl, that.mNewsUrl)
+                && equal(mAuthor, that.mAuthor);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = mTitle != null ? mTitle.hashCode() : 0;
+        result = 31 * result + (mSectionId != null ? mSectionId.hashCode() : 0);
+        result = 31 * result + (mCategory != null ? mCategory.hashCode() : 0);
+        result = 31 * result + (mPublishedDate != null ? mPublishedDate.hashCode() : 0);
+        result = 31 * result + (mNewsUrl != null ? mNewsUrl.hashCode() : 0);
+        result = 31 * result + (mAuthor != null ? mAuthor.hashCode() : 0);
+        return result;
+    }
+
+    /**
+     * Parse the publication date received from the API (e.g. "2017-11-27T11:11:00Z").
+     * NewsObjects are created on background threads, so the date is parsed there
+     * and never while the list is being scrolled.
+     */
+    private static long parsePublishedTime(String publishedDate) {
+        if (publishedDate == null) {
+            return UNKNOWN_TIME;
+        }
+        try {
+            return sPublishedDateFormat.get().parse(publishedDate).getTime();
+        } catch (ParseException e) {
+            return UNKNOWN_TIME;
+        }
+    }
+
+    /**
+     * Build the info line from the author (if any) and category.
+     */
+    private static String buildInfoText(String author, String category) {
+        // Section names are English, so they are upper-cased the same way in every locale
+        // (e.g. not "SC\u0130ENCE" in Turkish).
+        String categoryText = category == null ? "" : category.toUpperCase(Locale.US);
+        if (author == null || author.isEmpty()) {
+            return categoryText;
+        }
+        return author + "  @  " + categoryText;
+    }
+
+    /**
+     * Return the 64-bit FNV-1a hash of the web URL, which (unlike {@link String#hashCode()})
+     * makes collisions within a list practically impossible.
+     */
+    private static long hashUrl(String newsUrl) {
+        long hash = 0xcbf29ce484222325L;
+        if (newsUrl != null) {
+            for (int i = 0; i < newsUrl.length(); i++) {
+                hash ^= newsUrl.charAt(i);
+                hash *= 0x100000001b3L;
+            }
+        }
+        return hash;
+    }
+
+    /**
+     * Null-safe equality check of two field values.
+     */
+    private static boolean equal(Object a, Object b) {
+        return a == null ? b == null : a.equals(b);
+    }
+
+    @Override
+    public String toString() {
+        return "NewsObject{" +
+                "mTitle='" + mTitle + '\'' +
+                ", mSectionId='" + mSectionId + '\'' +
+                "mCategory='" + mCategory + '\'' +
+                ", mPublishedDate='" + mPublishedDate + '\'' +
+                ", mNewsUrl='" + mNewsUrl + '\'' +
+                "mAuthor='" + mAuthor + '\'' +
+                '}';
+    }
+
+}
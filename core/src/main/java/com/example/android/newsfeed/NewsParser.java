@@ -0,0 +1,209 @@
+package com.example.android.newsfeed;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+
+/**
+ * Turns a response of the Guardian API into a list of {@link NewsObject}s.
+ * <p>
+ * The response is never held in memory as a whole - it is walked token by token and each
+ * element of the "results" array becomes a {@link NewsObject} as soon as its closing brace
+ * has been read, so peak memory does not grow with the page size.
+ * <p>
+ * This class has no Android dependencies (the streaming reader of Gson has the same API as
+ * android.util.JsonReader), so it can be tested and benchmarked on the JVM.
+ */
+
+public final class NewsParser {
+
+    /**
+     * Charset of the API responses
+     */
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    /**
+     * Create a private constructor because no one should ever create a {@link NewsParser} object.
+     */
+    private NewsParser() {
+    }
+
+    /**
+     * Parse a whole response.
+     *
+     * @param inputStream body of the response, not closed by this method
+     * @return the NewsObjects of the "results" array, or null if the response has none.
+     * @throws IOException           if the JSON is malformed or the stream cannot be read
+     * @throws IllegalStateException if the JSON does not have the expected structure
+     */
+    public static ArrayList<NewsObject> parse(InputStream inputStream) throws IOException {
+        JsonReader reader = new JsonReader(new InputStreamReader(inputStream, UTF_8));
+        ArrayList<NewsObject> newsObjects = null;
+
+        // Root object: { "response": { ..., "results": [ ... ] } }
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (reader.nextName().equals("response")) {
+                newsObjects = readResponse(reader);
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        return newsObjects;
+    }
+
+    /**
+     * Read the "response" object and return the NewsObjects found in its "results" array.
+     */
+    private static ArrayList<NewsObject> readResponse(JsonReader reader) throws IOException {
+        // Create an empty ArrayList that we can start adding newsObjects to
+        ArrayList<NewsObject> newsObjects = new ArrayList<>();
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (reader.nextName().equals("results") && reader.peek() == JsonToken.BEGIN_ARRAY) {
+                // For each newsObject in the results array, create a {@link NewsObject} object
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    newsObjects.add(readNewsObject(reader));
+                }
+                reader.endArray();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        return newsObjects;
+    }
+
+    /**
+     * Read a single element of the "results" array into a {@link NewsObject}.
+     */
+    private static NewsObject readNewsObject(JsonReader reader) throws IOException {
+        // For a given newsObject, extract the Strings associated with the
+        // keys called "webTitle", "sectionId", "sectionName", "webPublicationDate" and
+        // "webUrl" which represents a title, date and link for that newsObject.
+        // Received date format is: "yyyy-MM-dd'T'HH:mm:ss'Z'"
+        String title = null;
+        String sectionId = null;
+        String category = null;
+        String publishedDate = null;
+        String newsUrl = null;
+        String author = null;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (reader.peek() == JsonToken.NULL) {
+                reader.skipValue();
+                continue;
+            }
+            switch (name) {
+                case "webTitle":
+                    title = reader.nextString();
+                    break;
+                case "sectionId":
+                    sectionId = reader.nextString();
+                    break;
+                case "sectionName":
+                    category = reader.nextString();
+                    break;
+                case "webPublicationDate":
+                    publishedDate = reader.nextString();
+                    break;
+                case "webUrl":
+                    newsUrl = reader.nextString();
+                    break;
+                case "tags":
+                    // Array of tags, which should contain 'contributor' (author) if available.
+                    // The contributors replace a byline read before, but no contributors don't.
+                    String contributors = readContributors(reader);
+                    if (contributors != null) {
+                        author = contributors;
+                    }
+                    break;
+                case "fields":
+                    // Object of the requested fields - the byline (author) in the minimal payload.
+                    String byline = readByline(reader);
+                    if (author == null) {
+                        author = byline;
+                    }
+                    break;
+                default:
+                    reader.skipValue();
+                    break;
+            }
+        }
+        reader.endObject();
+
+        // Create a new {@link NewsObject} object with the title, section, author (if any),
+        // publication date and URL info from the JSON response.
+        return new NewsObject(title, sectionId, category, publishedDate, newsUrl, author);
+    }
+
+    /**
+     * Read the "tags" array and return the comma separated names of all contributors,
+     * or null if there are none.
+     */
+    private static String readContributors(JsonReader reader) throws IOException {
+        StringBuilder authorBuilder = null;
+
+        reader.beginArray();
+        while (reader.hasNext()) {
+            String type = null;
+            String webTitle = null;
+
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String name = reader.nextName();
+                if (name.equals("type") && reader.peek() == JsonToken.STRING) {
+                    type = reader.nextString();
+                } else if (name.equals("webTitle") && reader.peek() == JsonToken.STRING) {
+                    webTitle = reader.nextString();
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+
+            if ("contributor".equalsIgnoreCase(type) && webTitle != null) {
+                if (authorBuilder == null) {
+                    authorBuilder = new StringBuilder(webTitle);
+                } else {
+                    authorBuilder.append(", ").append(webTitle);
+                }
+            }
+        }
+        reader.endArray();
+
+        return authorBuilder == null ? null : authorBuilder.toString();
+    }
+
+    /**
+     * Read the "fields" object and return its "byline", or null if there is none.
+     */
+    private static String readByline(JsonReader reader) throws IOException {
+        String byline = null;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (reader.nextName().equals("byline") && reader.peek() == JsonToken.STRING) {
+                byline = reader.nextString();
+            } else {
+                // Skipped values are never turned into Strings.
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        return byline == null || byline.isEmpty() ? null : byline;
+    }
+}
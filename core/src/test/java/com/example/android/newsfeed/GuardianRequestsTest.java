@@ -0,0 +1,62 @@
+package com.example.android.newsfeed;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * The URLs must stay the same as the ones android.net.Uri.Builder built before.
+ */
+public class GuardianRequestsTest {
+
+    private final GuardianRequests mRequests =
+            new GuardianRequests("https://content.guardianapis.com/search", "key", 20, true);
+
+    @Test
+    public void sectionRequest_isEncodedLikeUri() throws Exception {
+        assertEquals("https://content.guardianapis.com/search?format=json&section=technology"
+                        + "&show-fields=byline&page-size=20&order-by=newest&api-key=key",
+                mRequests.buildRequestUrl("technology"));
+        assertEquals("https://content.guardianapis.com/search?format=json&section=technology"
+                        + "&show-tags=contributor&page-size=20&order-by=newest&api-key=key",
+                mRequests.buildRequestUrl("technology", false));
+    }
+
+    @Test
+    public void batchRequest_encodesSeparatorAndCapsPageSize() throws Exception {
+        String requestUrl = mRequests.buildBatchRequestUrl(
+                "technology", "world", "science", "business", "money", "sport", "film",
+                "music", "books", "travel", "culture");
+        assertEquals("https://content.guardianapis.com/search?format=json"
+                        + "&section=technology%7Cworld%7Cscience%7Cbusiness%7Cmoney%7Csport"
+                        + "%7Cfilm%7Cmusic%7Cbooks%7Ctravel%7Cculture&show-fields=byline"
+                        + "&page-size=200&order-by=newest&api-key=key",
+                requestUrl);
+    }
+
+    @Test
+    public void batchRequest_requestsLargestPage() throws Exception {
+        assertEquals("https://content.guardianapis.com/search?format=json"
+                        + "&section=world%7Cbusiness&show-fields=byline"
+                        + "&page-size=200&order-by=newest&api-key=key",
+                mRequests.buildBatchRequestUrl("world", "business"));
+    }
+
+    @Test
+    public void searchRequest_percentEncodesUtf8() throws Exception {
+        assertEquals("https://content.guardianapis.com/search?format=json"
+                        + "&q=%C3%A9t%C3%A9%20%26%20co.%2Bmore*&show-fields=byline"
+                        + "&page-size=20&order-by=relevance&api-key=key",
+                mRequests.buildSearchRequestUrl("\u00e9t\u00e9 & co.+more*"));
+    }
+
+    @Test
+    public void pageAndDeltaRequests_appendToExistingQuery() throws Exception {
+        String requestUrl = mRequests.buildRequestUrl("world");
+        assertEquals(requestUrl + "&page=3", GuardianRequests.buildPageRequestUrl(requestUrl, 3));
+        assertEquals(requestUrl + "&from-date=2017-11-20",
+                GuardianRequests.buildDeltaRequestUrl(requestUrl, "2017-11-20T08:15:00Z"));
+        assertEquals("https://example.com/search?page=2",
+                GuardianRequests.buildPageRequestUrl("https://example.com/search", 2));
+    }
+}
@@ -0,0 +1,120 @@
+package com.example.android.newsfeed;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class NewsParserTest {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static final String ARTICLE = "\"webTitle\":\"Title\",\"sectionId\":\"world\","
+            + "\"sectionName\":\"World news\",\"webPublicationDate\":\"2017-11-27T11:11:00Z\","
+            + "\"webUrl\":\"https://www.theguardian.com/world/1\"";
+
+    @Test
+    public void article_readsAllValues() throws Exception {
+        NewsObject newsObject = parseResults("{" + ARTICLE + "}").get(0);
+        assertEquals(new NewsObject("Title", "world", "World news", "2017-11-27T11:11:00Z",
+                "https://www.theguardian.com/world/1", null), newsObject);
+        assertEquals(1511781060000L, newsObject.getPublishedTime());
+    }
+
+    @Test
+    public void nullValues_areSkipped() throws Exception {
+        NewsObject newsObject = parseResults("{\"webTitle\":null,\"sectionId\":null,"
+                + "\"webPublicationDate\":null,\"tags\":null,\"fields\":null,"
+                + "\"webUrl\":\"https://www.theguardian.com/world/1\"}").get(0);
+        assertNull(newsObject.getTitle());
+        assertNull(newsObject.getSectionId());
+        assertNull(newsObject.getAuthor());
+        assertEquals(NewsObject.UNKNOWN_TIME, newsObject.getPublishedTime());
+    }
+
+    @Test
+    public void missingResults_isEmpty() throws Exception {
+        assertTrue(parse("{\"response\":{\"status\":\"ok\",\"total\":0}}").isEmpty());
+        assertTrue(parse("{\"response\":{\"results\":null}}").isEmpty());
+        assertNull(parse("{\"other\":{}}"));
+    }
+
+    @Test
+    public void contributorTags_areJoined() throws Exception {
+        NewsObject newsObject = parseResults("{" + ARTICLE + ",\"tags\":["
+                + "{\"type\":\"keyword\",\"webTitle\":\"Politics\"},"
+                + "{\"type\":\"contributor\",\"webTitle\":\"Jane Doe\",\"bio\":\"<p>Bio</p>\"},"
+                + "{\"type\":\"contributor\",\"webTitle\":\"John Roe\"}]}").get(0);
+        assertEquals("Jane Doe, John Roe", newsObject.getAuthor());
+    }
+
+    @Test
+    public void byline_isAuthor() throws Exception {
+        NewsObject newsObject = parseResults(
+                "{" + ARTICLE + ",\"fields\":{\"headline\":\"H\",\"byline\":\"Jane Doe\"}}")
+                .get(0);
+        assertEquals("Jane Doe", newsObject.getAuthor());
+        newsObject = parseResults("{" + ARTICLE + ",\"fields\":{\"byline\":\"\"}}").get(0);
+        assertNull(newsObject.getAuthor());
+    }
+
+    @Test
+    public void contributors_winOverByline_inAnyOrder() throws Exception {
+        String tags = "\"tags\":[{\"type\":\"contributor\",\"webTitle\":\"Jane Doe\"}]";
+        String fields = "\"fields\":{\"byline\":\"J Doe in London\"}";
+        assertEquals("Jane Doe",
+                parseResults("{" + ARTICLE + "," + tags + "," + fields + "}").get(0).getAuthor());
+        assertEquals("Jane Doe",
+                parseResults("{" + ARTICLE + "," + fields + "," + tags + "}").get(0).getAuthor());
+    }
+
+    @Test
+    public void fieldsBeforeTags_keepsBylineWithoutContributors() throws Exception {
+        NewsObject newsObject = parseResults("{" + ARTICLE
+                + ",\"fields\":{\"byline\":\"Jane Doe\"},"
+                + "\"tags\":[{\"type\":\"keyword\",\"webTitle\":\"Politics\"}]}").get(0);
+        assertEquals("Jane Doe", newsObject.getAuthor());
+    }
+
+    @Test
+    public void truncatedInput_throwsIOException() throws Exception {
+        String json = "{\"response\":{\"results\":[{" + ARTICLE + "},{" + ARTICLE + "}]}}";
+        try {
+            parse(json.substring(0, json.length() / 2));
+            fail();
+        } catch (IOException expected) {
+        }
+    }
+
+    @Test
+    public void malformedInput_throws() throws Exception {
+        try {
+            parse("{\"response\":{\"results\":[{\"webTitle\" \"Title\"}]}}");
+            fail();
+        } catch (IOException expected) {
+        }
+        try {
+            // Valid JSON, but not the expected structure.
+            parse("[{\"response\":{}}]");
+            fail();
+        } catch (IllegalStateException expected) {
+        }
+    }
+
+    private static List<NewsObject> parseResults(String result) throws IOException {
+        List<NewsObject> newsObjects = parse("{\"response\":{\"results\":[" + result + "]}}");
+        assertEquals(1, newsObjects.size());
+        return newsObjects;
+    }
+
+    private static List<NewsObject> parse(String json) throws IOException {
+        return NewsParser.parse(new ByteArrayInputStream(json.getBytes(UTF_8)));
+    }
+}
@@ -0,0 +1,618 @@
+package com.example.android.newsfeed.mockserver;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.Charset;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Local stand-in for the Guardian API, for load and resilience tests of the app's networking
+ * code against a server whose behaviour is known and repeatable.
+ * <p>
+ * It speaks just enough HTTP/1.1 (GET, keep-alive, gzip) to serve the app's requests. A
+ * /search request is answered with the recording put for its query, if any, or else with a
+ * response built by {@link GuardianResponses}. Faults can then be injected, and changed while
+ * the server runs: latency, a bandwidth limit, error responses, bodies cut off halfway and
+ * pages larger than the real API allows. Which requests fail is drawn from a seeded
+ * {@link Random}, so a run with the same seed and the same requests fails the same way.
+ * <p>
+ * Point the app at {@link #getBaseUrl()}, e.g. with FragmentUtils.setApiBaseUrl in a test, or
+ * run {@link #main(String[])} on the development machine and build the app with
+ * -PguardianApiBaseUrl=http://10.0.2.2:8080/search to use it from the emulator.
+ */
+
+public final class GuardianMockServer {
+
+    /**
+     * Path of the only endpoint served
+     */
+    public static final String SEARCH_PATH = "/search";
+
+    /**
+     * Size (in bytes) of the chunks the body is written in when the bandwidth is limited
+     */
+    private static final int CHUNK_SIZE = 1024;
+
+    /**
+     * Time (in milliseconds) an idle keep-alive connection is kept open
+     */
+    private static final int IDLE_TIMEOUT = 15000;
+
+    /**
+     * Longest request line or header line accepted
+     */
+    private static final int MAX_LINE_LENGTH = 8192;
+
+    private static final Charset US_ASCII = Charset.forName("US-ASCII");
+
+    /**
+     * Response bodies by normalized query (see {@link #recordingKey(Map)})
+     */
+    private final Map<String, byte[]> mRecordings = new ConcurrentHashMap<>();
+
+    /**
+     * Connections currently open, closed on {@link #shutdown()}
+     */
+    private final Set<Socket> mConnections =
+            Collections.newSetFromMap(new ConcurrentHashMap<Socket, Boolean>());
+
+    /**
+     * Number of requests received, including the ones failed on purpose
+     */
+    private final AtomicInteger mRequestCount = new AtomicInteger();
+
+    /**
+     * Number of requests failed on purpose, with an error response or a truncated body
+     */
+    private final AtomicInteger mFaultCount = new AtomicInteger();
+
+    /**
+     * Decides which requests fail; guarded by itself
+     */
+    private final Random mRandom = new Random(0);
+
+    /**
+     * Time (in milliseconds) before the response headers are sent
+     */
+    private volatile long mLatency;
+
+    /**
+     * Bandwidth (in bytes per second) the body is sent at, 0 for no limit
+     */
+    private volatile int mBandwidth;
+
+    /**
+     * Status code of the error responses
+     */
+    private volatile int mErrorCode = 503;
+
+    /**
+     * Share (0 to 1) of the requests answered with {@link #mErrorCode}
+     */
+    private volatile double mErrorRate;
+
+    /**
+     * Value (in seconds) of the Retry-After header of the error responses, -1 for none
+     */
+    private volatile int mRetryAfter = -1;
+
+    /**
+     * Share (0 to 1) of the responses whose body is cut off halfway
+     */
+    private volatile double mTruncateRate;
+
+    /**
+     * Number of results of every page, or 0 for the requested "page-size"
+     */
+    private volatile int mPageSize;
+
+    /**
+     * Whether to gzip the body when the request accepts it
+     */
+    private volatile boolean mGzipEnabled = true;
+
+    private ServerSocket mServerSocket;
+    private ExecutorService mExecutor;
+
+    /**
+     * Start the server on a free port of the loopback interface.
+     */
+    public void start() throws IOException {
+        start(InetAddress.getByName("127.0.0.1"), 0);
+    }
+
+    /**
+     * Start the server.
+     *
+     * @param address interface to listen on
+     * @param port    port to listen on, or 0 for any free port
+     */
+    public synchronized void start(InetAddress address, int port) throws IOException {
+        if (mServerSocket != null) {
+            throw new IllegalStateException("Already started");
+        }
+        mServerSocket = new ServerSocket(port, 50, address);
+        mExecutor = Executors.newCachedThreadPool();
+        final ServerSocket serverSocket = mServerSocket;
+        final ExecutorService executor = mExecutor;
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                acceptConnections(serverSocket, executor);
+            }
+        });
+    }
+
+    /**
+     * Stop the server, closing the open connections.
+     */
+    public synchronized void shutdown() {
+        if (mServerSocket == null) {
+            return;
+        }
+        closeQuietly(mServerSocket);
+        for (Socket socket : mConnections) {
+            closeQuietly(socket);
+        }
+        mExecutor.shutdownNow();
+        mServerSocket = null;
+        mExecutor = null;
+    }
+
+    /**
+     * Get the port the server listens on.
+     */
+    public synchronized int getPort() {
+        if (mServerSocket == null) {
+            throw new IllegalStateException("Not started");
+        }
+        return mServerSocket.getLocalPort();
+    }
+
+    /**
+     * Get the URL of the /search endpoint, to use instead of the Guardian's.
+     *
+     * @return e.g. http://127.0.0.1:41234/search
+     */
+    public synchronized String getBaseUrl() {
+        if (mServerSocket == null) {
+            throw new IllegalStateException("Not started");
+        }
+        return "http://" + mServerSocket.getInetAddress().getHostAddress() + ":"
+                + mServerSocket.getLocalPort() + SEARCH_PATH;
+    }
+
+    /**
+     * Answer the requests with the given query with a recorded response.
+     *
+     * @param query e.g. "section=technology&page-size=20"; the order of the parameters and the
+     *              api-key do not matter
+     * @param body  JSON body, e.g. saved from the real API
+     */
+    public void putRecording(String query, byte[] body) {
+        mRecordings.put(recordingKey(GuardianResponses.parseQuery(query)), body);
+    }
+
+    /**
+     * Load the recorded responses of a directory. Each *.json file is the body of the response
+     * to the query its name holds, URL encoded, e.g. "section%3Dtechnology%26page-size%3D20.json".
+     *
+     * @return number of recordings loaded.
+     */
+    public int loadRecordings(File directory) throws IOException {
+        File[] files = directory.listFiles();
+        if (files == null) {
+            throw new IOException("Cannot list " + directory);
+        }
+        int count = 0;
+        for (File file : files) {
+            String name = file.getName();
+            if (file.isFile() && name.endsWith(".json")) {
+                String query = GuardianResponses.parseQuery("q="
+                        + name.substring(0, name.length() - ".json".length())).get("q");
+                putRecording(query, readFile(file));
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Delay every response.
+     *
+     * @param latency time (in milliseconds) before the response headers are sent
+     */
+    public void setLatency(long latency) {
+        mLatency = latency;
+    }
+
+    /**
+     * Limit the rate the response bodies are sent at, per connection.
+     *
+     * @param bytesPerSecond bandwidth, or 0 for no limit
+     */
+    public void setBandwidth(int bytesPerSecond) {
+        mBandwidth = bytesPerSecond;
+    }
+
+    /**
+     * Answer a share of the requests with an error.
+     *
+     * @param code       status code, e.g. 429 or 503
+     * @param rate       share of the requests, from 0 (none) to 1 (all)
+     * @param retryAfter value (in seconds) of the Retry-After header, or -1 for none
+     */
+    public void setErrors(int code, double rate, int retryAfter) {
+        mErrorCode = code;
+        mRetryAfter = retryAfter;
+        mErrorRate = rate;
+    }
+
+    /**
+     * Cut off a share of the response bodies halfway and close the connection, with the
+     * Content-Length of the whole body already sent.
+     *
+     * @param rate share of the responses, from 0 (none) to 1 (all)
+     */
+    public void setTruncateRate(double rate) {
+        mTruncateRate = rate;
+    }
+
+    /**
+     * Serve pages of a fixed size whatever the request asks for, e.g. larger than the 200
+     * results the real API allows.
+     *
+     * @param pageSize number of results of every page, or 0 for the requested "page-size"
+     */
+    public void setPageSize(int pageSize) {
+        mPageSize = pageSize;
+    }
+
+    /**
+     * Set whether to gzip the body when the request accepts it, as the real API does.
+     */
+    public void setGzipEnabled(boolean enabled) {
+        mGzipEnabled = enabled;
+    }
+
+    /**
+     * Restart the sequence of injected faults, to repeat a run.
+     */
+    public void setSeed(long seed) {
+        synchronized (mRandom) {
+            mRandom.setSeed(seed);
+        }
+    }
+
+    /**
+     * Get the number of requests received so far, including the ones failed on purpose.
+     */
+    public int getRequestCount() {
+        return mRequestCount.get();
+    }
+
+    /**
+     * Get the number of requests failed on purpose so far.
+     */
+    public int getFaultCount() {
+        return mFaultCount.get();
+    }
+
+    /**
+     * Accept connections until the server socket is closed.
+     */
+    private void acceptConnections(ServerSocket serverSocket, ExecutorService executor) {
+        while (!serverSocket.isClosed()) {
+            final Socket socket;
+            try {
+                socket = serverSocket.accept();
+            } catch (IOException e) {
+                // Closed by shutdown()
+                return;
+            }
+            mConnections.add(socket);
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        serveConnection(socket);
+                    } catch (IOException e) {
+                        // The client went away, or the server is shutting down.
+                    } finally {
+                        mConnections.remove(socket);
+                        closeQuietly(socket);
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Serve the requests of a connection until either side closes it.
+     */
+    private void serveConnection(Socket socket) throws IOException {
+        socket.setSoTimeout(IDLE_TIMEOUT);
+        InputStream in = new BufferedInputStream(socket.getInputStream());
+        OutputStream out = socket.getOutputStream();
+        while (true) {
+            String requestLine = readLine(in);
+            if (requestLine == null || requestLine.isEmpty()) {
+                return;
+            }
+            Map<String, String> headers = new HashMap<>();
+            String line;
+            while ((line = readLine(in)) != null && !line.isEmpty()) {
+                int separator = line.indexOf(':');
+                if (separator > 0) {
+                    headers.put(line.substring(0, separator).trim().toLowerCase(Locale.US),
+                            line.substring(separator + 1).trim());
+                }
+            }
+            if (line == null) {
+                return;
+            }
+            boolean keepAlive = serveRequest(requestLine, headers, out);
+            if (!keepAlive || "close".equalsIgnoreCase(headers.get("connection"))) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Write the response to a request.
+     *
+     * @return false if the connection has to be closed.
+     */
+    private boolean serveRequest(String requestLine, Map<String, String> headers,
+                                 OutputStream out) throws IOException {
+        mRequestCount.incrementAndGet();
+        sleep(mLatency);
+
+        // e.g. GET /search?section=technology&page-size=20 HTTP/1.1
+        String[] parts = requestLine.split(" ");
+        if (parts.length != 3 || !"GET".equals(parts[0])) {
+            writeResponse(out, 405, null, GuardianResponses.error("Method not allowed"));
+            return false;
+        }
+        String target = parts[1];
+        int queryStart = target.indexOf('?');
+        String path = queryStart < 0 ? target : target.substring(0, queryStart);
+        if (!SEARCH_PATH.equals(path)) {
+            writeResponse(out, 404, null, GuardianResponses.error("Not found"));
+            return true;
+        }
+
+        double errorDraw;
+        double truncateDraw;
+        synchronized (mRandom) {
+            errorDraw = mRandom.nextDouble();
+            truncateDraw = mRandom.nextDouble();
+        }
+        if (errorDraw < mErrorRate) {
+            mFaultCount.incrementAndGet();
+            int retryAfter = mRetryAfter;
+            writeResponse(out, mErrorCode, retryAfter < 0 ? null : String.valueOf(retryAfter),
+                    GuardianResponses.error("Injected error"));
+            return true;
+        }
+
+        Map<String, String> query = GuardianResponses.parseQuery(
+                queryStart < 0 ? null : target.substring(queryStart + 1));
+        byte[] body = mRecordings.get(recordingKey(query));
+        if (body == null) {
+            body = GuardianResponses.search(query, mPageSize);
+        }
+        String acceptEncoding = headers.get("accept-encoding");
+        boolean gzip = mGzipEnabled && acceptEncoding != null && acceptEncoding.contains("gzip");
+        if (gzip) {
+            body = gzip(body);
+        }
+
+        if (truncateDraw < mTruncateRate) {
+            mFaultCount.incrementAndGet();
+            writeHead(out, 200, null, body.length, gzip);
+            writeBody(out, body, body.length / 2);
+            out.flush();
+            return false;
+        }
+        writeHead(out, 200, null, body.length, gzip);
+        writeBody(out, body, body.length);
+        out.flush();
+        return true;
+    }
+
+    private void writeResponse(OutputStream out, int code, String retryAfter, byte[] body)
+            throws IOException {
+        writeHead(out, code, retryAfter, body.length, false);
+        writeBody(out, body, body.length);
+        out.flush();
+    }
+
+    private static void writeHead(OutputStream out, int code, String retryAfter,
+                                  int contentLength, boolean gzip) throws IOException {
+        StringBuilder head = new StringBuilder(256);
+        head.append("HTTP/1.1 ").append(code).append(' ').append(reasonPhrase(code)).append("\r\n")
+                .append("Content-Type: application/json; charset=UTF-8\r\n")
+                .append("Content-Length: ").append(contentLength).append("\r\n");
+        if (gzip) {
+            head.append("Content-Encoding: gzip\r\n");
+        }
+        if (retryAfter != null) {
+            head.append("Retry-After: ").append(retryAfter).append("\r\n");
+        }
+        head.append("\r\n");
+        out.write(head.toString().getBytes(US_ASCII));
+    }
+
+    /**
+     * Write the first {@code length} bytes of the body, at {@link #mBandwidth} if limited.
+     */
+    private void writeBody(OutputStream out, byte[] body, int length) throws IOException {
+        int bandwidth = mBandwidth;
+        if (bandwidth <= 0) {
+            out.write(body, 0, length);
+            return;
+        }
+        long start = System.nanoTime();
+        for (int offset = 0; offset < length; offset += CHUNK_SIZE) {
+            int count = Math.min(CHUNK_SIZE, length - offset);
+            out.write(body, offset, count);
+            out.flush();
+            // Wait until the bytes sent so far are due at the given bandwidth.
+            long due = (offset + count) * 1000L / bandwidth;
+            sleep(due - (System.nanoTime() - start) / 1000000L);
+        }
+    }
+
+    /**
+     * Return the key of the recordings of a query: its parameters sorted, without the api-key.
+     */
+    private static String recordingKey(Map<String, String> query) {
+        Map<String, String> sorted = new TreeMap<>(query);
+        sorted.remove("api-key");
+        return sorted.toString();
+    }
+
+    private static String reasonPhrase(int code) {
+        switch (code) {
+            case 200:
+                return "OK";
+            case 404:
+                return "Not Found";
+            case 405:
+                return "Method Not Allowed";
+            case 429:
+                return "Too Many Requests";
+            case 500:
+                return "Internal Server Error";
+            case 502:
+                return "Bad Gateway";
+            case 503:
+                return "Service Unavailable";
+            case 504:
+                return "Gateway Timeout";
+            default:
+                return "Error";
+        }
+    }
+
+    /**
+     * Read a CRLF (or LF) terminated line.
+     *
+     * @return the line without its terminator, or null at the end of the stream.
+     */
+    private static String readLine(InputStream in) throws IOException {
+        StringBuilder line = new StringBuilder();
+        int c;
+        while ((c = in.read()) != -1) {
+            if (c == '\n') {
+                int length = line.length();
+                if (length > 0 && line.charAt(length - 1) == '\r') {
+                    line.setLength(length - 1);
+                }
+                return line.toString();
+            }
+            if (line.length() == MAX_LINE_LENGTH) {
+                throw new IOException("Line too long");
+            }
+            line.append((char) c);
+        }
+        return null;
+    }
+
+    private static byte[] gzip(byte[] body) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(body.length / 4);
+        GZIPOutputStream gzip = new GZIPOutputStream(bytes);
+        gzip.write(body);
+        gzip.close();
+        return bytes.toByteArray();
+    }
+
+    private static byte[] readFile(File file) throws IOException {
+        InputStream in = new FileInputStream(file);
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream((int) file.length());
+            byte[] buffer = new byte[8192];
+            int count;
+            while ((count = in.read(buffer)) != -1) {
+                bytes.write(buffer, 0, count);
+            }
+            return bytes.toByteArray();
+        } finally {
+            in.close();
+        }
+    }
+
+    private static void sleep(long millis) throws InterruptedIOException {
+        if (millis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while delaying the response");
+        }
+    }
+
+    private static void closeQuietly(ServerSocket socket) {
+        try {
+            socket.close();
+        } catch (IOException e) {
+            // Nothing left to do.
+        }
+    }
+
+    private static void closeQuietly(Socket socket) {
+        try {
+            socket.close();
+        } catch (IOException e) {
+            // Nothing left to do.
+        }
+    }
+
+    /**
+     * Run the server on the development machine, e.g. for the emulator, which reaches it at
+     * http://10.0.2.2:&lt;port&gt;/search.
+     *
+     * @param args [port [recordings directory]], the port being 8080 by default
+     */
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 8080;
+        GuardianMockServer server = new GuardianMockServer();
+        if (args.length > 1) {
+            int count = server.loadRecordings(new File(args[1]));
+            System.out.println("Loaded " + count + " recordings from " + args[1]);
+        }
+        server.setLatency(Long.getLong("mockserver.latency", 0));
+        server.setBandwidth(Integer.getInteger("mockserver.bandwidth", 0));
+        server.setErrors(Integer.getInteger("mockserver.errorCode", 503),
+                Double.parseDouble(System.getProperty("mockserver.errorRate", "0")),
+                Integer.getInteger("mockserver.retryAfter", -1));
+        server.setTruncateRate(
+                Double.parseDouble(System.getProperty("mockserver.truncateRate", "0")));
+        server.setPageSize(Integer.getInteger("mockserver.pageSize", 0));
+        server.start(InetAddress.getByName("127.0.0.1"), port);
+        System.out.println("Serving " + server.getBaseUrl());
+    }
+}
@@ -0,0 +1,161 @@
+package com.example.android.newsfeed.mockserver;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.nio.charset.Charset;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TimeZone;
+
+/**
+ * Builds responses of the Guardian /search endpoint which follow the request: a page of
+ * "page-size" articles, split evenly between the sections of the "section"
+ * (e.g. technology|world) or "tag" parameter, with the byline field or contributor tags as
+ * asked for. Articles are numbered across pages, newest first, and the same request always
+ * gets the same response.
+ */
+
+public final class GuardianResponses {
+
+    /**
+     * Number of pages of results of every request, further pages are empty
+     */
+    public static final int PAGES = 10;
+
+    /**
+     * Publication date of the newest article, older ones are 7 minutes apart
+     */
+    private static final long NEWEST_PUBLISHED_TIME = 1511784000000L; // 2017-11-27T12:00:00Z
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    /**
+     * Create a private constructor because no one should ever create a {@link GuardianResponses} object.
+     */
+    private GuardianResponses() {
+    }
+
+    /**
+     * Build the response to a /search request.
+     *
+     * @param query    decoded query parameters of the request (see {@link #parseQuery(String)})
+     * @param pageSize number of articles per page, or 0 for the requested "page-size"
+     * @return the UTF-8 encoded JSON.
+     */
+    public static byte[] search(Map<String, String> query, int pageSize) {
+        String[] sections;
+        if (query.containsKey("section")) {
+            sections = query.get("section").split("\\|");
+        } else if (query.containsKey("tag")) {
+            // e.g. tag=technology/technology
+            sections = new String[]{query.get("tag").split("/")[0]};
+        } else {
+            sections = new String[]{"technology"};
+        }
+        if (pageSize <= 0) {
+            pageSize = parseInt(query.get("page-size"), 10);
+        }
+        int page = parseInt(query.get("page"), 1);
+        boolean byline = "byline".equals(query.get("show-fields"));
+        boolean tags = "contributor".equals(query.get("show-tags"));
+
+        SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'", Locale.US);
+        dateFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
+
+        StringBuilder json = new StringBuilder(pageSize * 700);
+        json.append("{\"response\":{\"status\":\"ok\",\"userTier\":\"developer\",\"total\":")
+                .append(PAGES * pageSize).append(",\"startIndex\":").append((page - 1) * pageSize + 1)
+                .append(",\"pageSize\":").append(pageSize).append(",\"currentPage\":").append(page)
+                .append(",\"pages\":").append(PAGES).append(",\"orderBy\":\"newest\",\"results\":[");
+
+        int count = page <= PAGES ? pageSize : 0;
+        for (int i = 0; i < count; i++) {
+            String section = sections[i % sections.length];
+            // Number of the article within its section, across pages
+            int number = ((page - 1) * pageSize + i) / sections.length + 1;
+            String id = section + "/2017/nov/27/fixture-article-" + number;
+            String date = dateFormat.format(new Date(NEWEST_PUBLISHED_TIME - number * 7 * 60 * 1000L));
+            String author = "Fixture Author " + (number % 7 + 1);
+
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"id\":\"").append(id)
+                    .append("\",\"type\":\"article\",\"sectionId\":\"").append(section)
+                    .append("\",\"sectionName\":\"").append(capitalize(section))
+                    .append("\",\"webPublicationDate\":\"").append(date)
+                    .append("\",\"webTitle\":\"Fixture headline ").append(number).append(" in ")
+                    .append(section).append(": a title of typical length for a news article")
+                    .append("\",\"webUrl\":\"https://www.theguardian.com/").append(id)
+                    .append("\",\"apiUrl\":\"https://content.guardianapis.com/").append(id)
+                    .append('"');
+            if (byline) {
+                json.append(",\"fields\":{\"byline\":\"").append(author).append("\"}");
+            }
+            if (tags) {
+                json.append(",\"tags\":[{\"id\":\"profile/fixture-author\",\"type\":\"contributor\"")
+                        .append(",\"webTitle\":\"").append(author)
+                        .append("\",\"webUrl\":\"https://www.theguardian.com/profile/fixture-author\"")
+                        .append(",\"apiUrl\":\"https://content.guardianapis.com/profile/fixture-author\"")
+                        .append(",\"references\":[],\"bio\":\"<p>A fixture author.</p>\"}]");
+            }
+            json.append(",\"isHosted\":false,\"pillarId\":\"pillar/news\",\"pillarName\":\"News\"}");
+        }
+        json.append("]}}");
+        return json.toString().getBytes(UTF_8);
+    }
+
+    /**
+     * Build the body of an error response, as the API sends with e.g. 429 or 503.
+     *
+     * @return the UTF-8 encoded JSON.
+     */
+    public static byte[] error(String message) {
+        return ("{\"response\":{\"status\":\"error\",\"message\":\"" + message + "\"}}").getBytes(UTF_8);
+    }
+
+    /**
+     * Return the decoded parameters of a query string, in their order.
+     *
+     * @param query e.g. "section=technology&page-size=20", may be null
+     */
+    public static Map<String, String> parseQuery(String query) {
+        Map<String, String> parameters = new LinkedHashMap<>();
+        if (query == null) {
+            return parameters;
+        }
+        for (String parameter : query.split("&")) {
+            int separator = parameter.indexOf('=');
+            if (separator > 0) {
+                parameters.put(decode(parameter.substring(0, separator)),
+                        decode(parameter.substring(separator + 1)));
+            }
+        }
+        return parameters;
+    }
+
+    private static String decode(String value) {
+        try {
+            return URLDecoder.decode(value, "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            // Every JVM supports UTF-8.
+            throw new AssertionError(e);
+        }
+    }
+
+    private static int parseInt(String value, int defaultValue) {
+        try {
+            return value == null ? defaultValue : Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
+    private static String capitalize(String section) {
+        return section.isEmpty() ? section
+                : Character.toUpperCase(section.charAt(0)) + section.substring(1);
+    }
+}
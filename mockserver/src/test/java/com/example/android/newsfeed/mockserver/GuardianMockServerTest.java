@@ -0,0 +1,104 @@
+package com.example.android.newsfeed.mockserver;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.Charset;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class GuardianMockServerTest {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final GuardianMockServer mServer = new GuardianMockServer();
+
+    @Before
+    public void setUp() throws Exception {
+        mServer.start();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        mServer.shutdown();
+    }
+
+    @Test
+    public void search_followsRequest() throws Exception {
+        HttpURLConnection connection = open("?section=world&page-size=3&page=2&api-key=key");
+        assertEquals(200, connection.getResponseCode());
+        String body = read(connection.getInputStream());
+        assertTrue(body, body.contains("\"pageSize\":3,\"currentPage\":2"));
+        assertTrue(body, body.contains("world/2017/nov/27/fixture-article-4\""));
+        assertTrue(body, body.contains("world/2017/nov/27/fixture-article-6\""));
+    }
+
+    @Test
+    public void recording_matchesQueryInAnyOrder() throws Exception {
+        mServer.putRecording("page-size=3&section=world", "{\"recorded\":true}".getBytes(UTF_8));
+        assertEquals("{\"recorded\":true}",
+                read(open("?section=world&page-size=3&api-key=key").getInputStream()));
+    }
+
+    @Test
+    public void errors_carryRetryAfter() throws Exception {
+        mServer.setErrors(429, 1, 30);
+        HttpURLConnection connection = open("?section=world");
+        assertEquals(429, connection.getResponseCode());
+        assertEquals("30", connection.getHeaderField("Retry-After"));
+        assertEquals(1, mServer.getFaultCount());
+    }
+
+    @Test
+    public void truncatedBody_isShorterThanContentLength() throws Exception {
+        mServer.setTruncateRate(1);
+        HttpURLConnection connection = open("?section=world&page-size=50");
+        assertEquals(200, connection.getResponseCode());
+        int contentLength = connection.getContentLength();
+        try {
+            // The JDK client ends the body quietly, Android's throws "unexpected end of stream".
+            assertEquals(contentLength / 2, read(connection.getInputStream()).length());
+        } catch (IOException expected) {
+        }
+    }
+
+    @Test
+    public void bandwidth_slowsBody() throws Exception {
+        mServer.setBandwidth(16 * 1024);
+        mServer.setPageSize(50);
+        long startTime = System.nanoTime();
+        int length = read(open("?section=world").getInputStream()).length();
+        long millis = (System.nanoTime() - startTime) / 1000000L;
+        // Allow for the last chunk being sent before its time is waited for.
+        assertTrue(millis + " ms for " + length + " bytes",
+                millis >= (length - 1024) * 1000L / (16 * 1024));
+    }
+
+    private HttpURLConnection open(String query) throws IOException {
+        HttpURLConnection connection =
+                (HttpURLConnection) new URL(mServer.getBaseUrl() + query).openConnection();
+        connection.setReadTimeout(10000);
+        return connection;
+    }
+
+    private static String read(InputStream in) throws IOException {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int count;
+            while ((count = in.read(buffer)) != -1) {
+                bytes.write(buffer, 0, count);
+            }
+            return new String(bytes.toByteArray(), UTF_8);
+        } finally {
+            in.close();
+        }
+    }
+}